@@ -1,8 +1,17 @@
 package com.emergya.selenium.drivers;
 
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
 import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
 import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.Response;
 
 /**
  * Custom driver for chrome
@@ -17,6 +26,13 @@ public class EmergyaChromeDriver extends ChromeDriver implements EmergyaWebDrive
      */
     private String mainWindowHandler;
 
+    /**
+     * Number of executed commands. It has no initializer because the session
+     * is created (first command) before the fields of this class are
+     * initialized.
+     */
+    private volatile long commandCount;
+
     /**
      * Constructor
      */
@@ -30,6 +46,32 @@ public class EmergyaChromeDriver extends ChromeDriver implements EmergyaWebDrive
         mainWindowHandler = EmergyaWebDriverUtil.getCurrentWindowHandler(this);
     }
 
+    /**
+     * Constructor to create a session against a running service. The service
+     * is not stopped when the driver quits, so it can be shared by several
+     * sessions.
+     * 
+     * @param service
+     *            shared chromedriver service
+     * @param chromeOptions
+     *            options of the session
+     */
+    public EmergyaChromeDriver(ChromeDriverService service, ChromeOptions chromeOptions) {
+        super(service, chromeOptions);
+        // the default executor stops the service on quit
+        setCommandExecutor(new HttpCommandExecutor(service.getUrl()));
+        mainWindowHandler = EmergyaWebDriverUtil.getCurrentWindowHandler(this);
+    }
+
+    /**
+     * @see org.openqa.selenium.remote.RemoteWebDriver#execute(String, Map)
+     */
+    @Override
+    protected Response execute(String driverCommand, Map<String, ?> parameters) {
+        commandCount++;
+        return super.execute(driverCommand, parameters);
+    }
+
     // **** Basic operation methods section ****//
     /**
      * Checks if an element exists in the DOM
@@ -55,6 +97,19 @@ public class EmergyaChromeDriver extends ChromeDriver implements EmergyaWebDrive
         return EmergyaWebDriverUtil.isElementDisplayed(this, selector);
     }
 
+    /**
+     * Checks right now if an element is displayed, with a single probe that is
+     * not delayed by the implicit wait
+     * 
+     * @param selector
+     *            By element
+     * @return True if the element exists in the DOM and is displayed and false
+     *         in the opposite case
+     */
+    public boolean isElementDisplayedNow(By selector) {
+        return EmergyaWebDriverUtil.isElementDisplayedNow(this, selector);
+    }
+
     /**
      * Clicks on an element after wait and if it is displayed
      * 
@@ -112,6 +167,15 @@ public class EmergyaChromeDriver extends ChromeDriver implements EmergyaWebDrive
         EmergyaWebDriverUtil.saveScreenshotDefault(this);
     }
 
+    /**
+     * Saves a screenshot in the default path without blocking the caller
+     * 
+     * @return future with the saved file, or null if it couldn't be saved
+     */
+    public CompletableFuture<File> saveScreenshotAsync() {
+        return EmergyaWebDriverUtil.saveScreenshotAsync(this);
+    }
+
     // **** Sleep method ****//
     /**
      * Stops the execution during some seconds
@@ -273,6 +337,143 @@ public class EmergyaChromeDriver extends ChromeDriver implements EmergyaWebDrive
         return EmergyaWebDriverUtil.waitUntilTextPresent(this, selector, seconds, text);
     }
 
+    /**
+     * It sleeps the driver for X seconds. If the element is not visible in the
+     * page, the execution continue without waiting X seconds
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to be slept
+     * @return true if the element is not visible in the page and false in the
+     *         opposite case
+     */
+    public boolean waitUntilNotVisible(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitUntilNotVisible(this, selector, seconds);
+    }
+
+    /**
+     * It waits until a composed condition is satisfied. The whole condition is
+     * checked in each tick of one polling loop
+     * 
+     * @param condition
+     *            to be satisfied, built with the {@link WaitCondition} methods
+     * @param seconds
+     *            to wait as maximum
+     * @return true if the condition was satisfied and false in the opposite
+     *         case
+     */
+    public boolean waitUntil(WaitCondition condition, long seconds) {
+        return EmergyaWebDriverUtil.waitUntil(this, condition, seconds);
+    }
+
+    /**
+     * It waits without blocking the caller until the element exists in the DOM
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return future with the element, or null if it's missing in the DOM
+     */
+    public CompletableFuture<WebElement> waitForElementAsync(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitForElementAsync(this, selector, seconds);
+    }
+
+    /**
+     * It waits without blocking the caller until the element is visible in the
+     * page
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return future with the element, or null if it's not visible in the page
+     */
+    public CompletableFuture<WebElement> waitForVisibleElementAsync(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitForVisibleElementAsync(this, selector, seconds);
+    }
+
+    /**
+     * It waits without blocking the caller until a composed condition is
+     * satisfied
+     * 
+     * @param condition
+     *            to be satisfied, built with the {@link WaitCondition} methods
+     * @param seconds
+     *            to wait as maximum
+     * @return future with true, or null if the condition wasn't satisfied
+     */
+    public CompletableFuture<Boolean> waitUntilAsync(WaitCondition condition, long seconds) {
+        return EmergyaWebDriverUtil.waitUntilAsync(this, condition, seconds);
+    }
+
+    /**
+     * It waits until the network of the page is idle: no more than maxInflight
+     * XHR/fetch requests in flight during quietMillis milliseconds
+     * 
+     * @param maxInflight
+     *            requests allowed in flight
+     * @param quietMillis
+     *            milliseconds without network activity
+     * @param seconds
+     *            to wait as maximum
+     * @return true if the network became idle and false in the opposite case
+     */
+    public boolean waitForNetworkIdle(int maxInflight, long quietMillis, long seconds) {
+        return EmergyaWebDriverUtil.waitForNetworkIdle(this, maxInflight, quietMillis, seconds);
+    }
+
+    /**
+     * Instruments the page to count the XHR/fetch requests in flight. Call it
+     * before the action whose requests are waited for with
+     * {@link #waitForNetworkIdle(int, long, long)}, and again after a
+     * navigation
+     */
+    public void armNetworkTracking() {
+        EmergyaWebDriverUtil.armNetworkTracking(this);
+    }
+
+    /**
+     * It waits until the element exists in the DOM and returns it
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return the element or null if it's missing in the DOM
+     */
+    public WebElement waitForElement(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitForElement(this, selector, seconds);
+    }
+
+    /**
+     * It waits until the element is visible in the page and returns it
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return the element or null if it's not visible in the page
+     */
+    public WebElement waitForVisibleElement(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitForVisibleElement(this, selector, seconds);
+    }
+
+    /**
+     * It waits until at least one element exists in the DOM and returns all of
+     * them
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return the elements or an empty list if they are missing in the DOM
+     */
+    public List<WebElement> waitForElements(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitForElements(this, selector, seconds);
+    }
+
     /**
      * @see EmergyaWebDriver#switchToMainwindow()
      */
@@ -291,4 +492,12 @@ public class EmergyaChromeDriver extends ChromeDriver implements EmergyaWebDrive
         return EmergyaWebDriverUtil.isCurrentWindowOpen(this);
     }
 
+    /**
+     * @see EmergyaWebDriver#getCommandCount()
+     */
+    @Override
+    public long getCommandCount() {
+        return commandCount;
+    }
+
 }
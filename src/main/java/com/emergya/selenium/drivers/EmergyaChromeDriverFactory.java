@@ -0,0 +1,83 @@
+package com.emergya.selenium.drivers;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.chrome.ChromeOptions;
+
+import com.emergya.selenium.utils.Initialization;
+import com.emergya.selenium.utils.StartupTimings;
+
+/**
+ * Factory of {@link EmergyaChromeDriver} instances
+ */
+public class EmergyaChromeDriverFactory implements EmergyaDriverFactory {
+
+    /**
+     * @see EmergyaDriverFactory#supports(String, String)
+     */
+    @Override
+    public boolean supports(String browser, String os) {
+        return "Chrome".equalsIgnoreCase(browser);
+    }
+
+    /**
+     * @see EmergyaDriverFactory#createDriver(Initialization)
+     */
+    @Override
+    public EmergyaWebDriver createDriver(Initialization config) {
+        ChromeOptions options = buildOptions(config);
+
+        // downloads in the directory of this driver, without asking
+        Map<String, Object> preferences = new HashMap<String, Object>();
+        preferences.put("download.default_directory", config.getNewDriverDownloadPath());
+        preferences.put("download.prompt_for_download", false);
+        options.setExperimentalOption("prefs", preferences);
+
+        String chromeExecutable = config.getWebdriverChrome();
+        if (!config.getOS().equalsIgnoreCase("windows")) {
+            chromeExecutable = chromeExecutable + ".exe";
+        }
+
+        if (config.isSharedDriverService()) {
+            long start = System.nanoTime();
+            ChromeDriverService service = SharedDriverServices.getChromeDriverService(new File(chromeExecutable));
+            StartupTimings.phase("driverService", start);
+            return new EmergyaChromeDriver(service, options);
+        }
+        System.setProperty("webdriver.chrome.driver", chromeExecutable);
+        return new EmergyaChromeDriver(options);
+    }
+
+    /**
+     * Builds the Chrome options of the configuration, shared by local and
+     * remote sessions.
+     * 
+     * @param config
+     *            with the headless and window settings
+     * @return the Chrome options
+     */
+    static ChromeOptions buildOptions(Initialization config) {
+        ChromeOptions options = new ChromeOptions();
+        if (config.isHeadless()) {
+            options.addArguments("--headless", "--disable-gpu");
+            options.addArguments("--window-size=" + config.getWindowWidth() + "," + config.getWindowHeight());
+        } else if (config.getWindowMode().equalsIgnoreCase("size")) {
+            options.addArguments("--window-size=" + config.getWindowWidth() + "," + config.getWindowHeight());
+        } else {
+            options.addArguments("--start-maximized");
+        }
+        return options;
+    }
+
+    /**
+     * @see EmergyaDriverFactory#isWindowSizedAtLaunch(Initialization)
+     */
+    @Override
+    public boolean isWindowSizedAtLaunch(Initialization config) {
+        return config.isHeadless() || config.getWindowMode().equalsIgnoreCase("size")
+                || config.getWindowMode().equalsIgnoreCase("maximize");
+    }
+}
@@ -0,0 +1,46 @@
+package com.emergya.selenium.drivers;
+
+import com.emergya.selenium.utils.Initialization;
+
+/**
+ * Factory of {@link EmergyaWebDriver} instances for a browser. The
+ * implementations are discovered with {@link java.util.ServiceLoader}, so a new
+ * browser flavour can be added registering its factory in
+ * META-INF/services/com.emergya.selenium.drivers.EmergyaDriverFactory,
+ * without changing {@link Initialization}. The factories must reference their
+ * driver classes only inside {@link #createDriver(Initialization)}, so the
+ * bindings of the unused browsers are never loaded.
+ */
+public interface EmergyaDriverFactory {
+
+    /**
+     * Checks if this factory creates the drivers of a browser
+     * 
+     * @param browser
+     *            value of the browser property
+     * @param os
+     *            value of the OS property
+     * @return true if this factory must be used
+     */
+    public boolean supports(String browser, String os);
+
+    /**
+     * Creates a new driver. The navigation to the login URL and the window
+     * sizing are done later by {@link Initialization}.
+     * 
+     * @param config
+     *            initialization configuration
+     * @return the new driver
+     */
+    public EmergyaWebDriver createDriver(Initialization config);
+
+    /**
+     * Checks if the window size is set with the launch options of the browser,
+     * so no resize command is needed.
+     * 
+     * @param config
+     *            initialization configuration
+     * @return true if the window is sized at launch
+     */
+    public boolean isWindowSizedAtLaunch(Initialization config);
+}
@@ -0,0 +1,50 @@
+package com.emergya.selenium.drivers;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.firefox.FirefoxProfile;
+
+import com.emergya.selenium.utils.Initialization;
+import com.emergya.selenium.utils.StartupTimings;
+
+/**
+ * Factory of {@link EmergyaFirefoxDriver} instances
+ */
+public class EmergyaFirefoxDriverFactory implements EmergyaDriverFactory {
+
+    private static Logger log = Logger.getLogger(EmergyaFirefoxDriverFactory.class);
+
+    /**
+     * @see EmergyaDriverFactory#supports(String, String)
+     */
+    @Override
+    public boolean supports(String browser, String os) {
+        return "Firefox".equalsIgnoreCase(browser);
+    }
+
+    /**
+     * @see EmergyaDriverFactory#createDriver(Initialization)
+     */
+    @Override
+    public EmergyaWebDriver createDriver(Initialization config) {
+        if (config.isHeadless()) {
+            // the legacy driver of Selenium 2.53 needs Firefox 47 or older,
+            // and the headless mode came with Firefox 56 and geckodriver
+            log.warn("Firefox can't be run in headless mode with this Selenium version, starting it with window");
+        }
+
+        long start = System.nanoTime();
+        FirefoxProfile firefoxProfile = config.getFirefoxProfileTemplate().newProfile();
+        firefoxProfile.setPreference("browser.download.dir", config.getNewDriverDownloadPath());
+        StartupTimings.phase("profile", start);
+
+        return new EmergyaFirefoxDriver(firefoxProfile);
+    }
+
+    /**
+     * @see EmergyaDriverFactory#isWindowSizedAtLaunch(Initialization)
+     */
+    @Override
+    public boolean isWindowSizedAtLaunch(Initialization config) {
+        return false;
+    }
+}
@@ -0,0 +1,53 @@
+package com.emergya.selenium.drivers;
+
+import java.io.File;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.ie.InternetExplorerDriverService;
+
+import com.emergya.selenium.utils.Initialization;
+import com.emergya.selenium.utils.StartupTimings;
+
+/**
+ * Factory of {@link EmergyaIEDriver} instances
+ */
+public class EmergyaIEDriverFactory implements EmergyaDriverFactory {
+
+    private static Logger log = Logger.getLogger(EmergyaIEDriverFactory.class);
+
+    /**
+     * @see EmergyaDriverFactory#supports(String, String)
+     */
+    @Override
+    public boolean supports(String browser, String os) {
+        return "IE".equalsIgnoreCase(browser) && "windows".equalsIgnoreCase(os);
+    }
+
+    /**
+     * @see EmergyaDriverFactory#createDriver(Initialization)
+     */
+    @Override
+    public EmergyaWebDriver createDriver(Initialization config) {
+        if (config.isHeadless()) {
+            log.warn("Internet Explorer can't be run in headless mode, starting it with window");
+        }
+
+        if (config.isSharedDriverService()) {
+            long start = System.nanoTime();
+            InternetExplorerDriverService service = SharedDriverServices
+                    .getInternetExplorerDriverService(new File(config.getWebdriverIE()));
+            StartupTimings.phase("driverService", start);
+            return new EmergyaIEDriver(service);
+        }
+        System.setProperty("webdriver.ie.driver", config.getWebdriverIE());
+        return new EmergyaIEDriver();
+    }
+
+    /**
+     * @see EmergyaDriverFactory#isWindowSizedAtLaunch(Initialization)
+     */
+    @Override
+    public boolean isWindowSizedAtLaunch(Initialization config) {
+        return false;
+    }
+}
@@ -0,0 +1,535 @@
+package com.emergya.selenium.drivers;
+
+import java.io.File;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.LocalFileDetector;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
+
+/**
+ * Custom driver for remote servers (Selenium standalone server or grid hub)
+ */
+public class EmergyaRemoteDriver extends RemoteWebDriver implements EmergyaWebDriver {
+
+    /**
+     * Main window handler to perform windows switch later.
+     */
+    private String mainWindowHandler;
+
+    /**
+     * Number of executed commands. It has no initializer because the session
+     * is created (first command) before the fields of this class are
+     * initialized.
+     */
+    private volatile long commandCount;
+
+    /**
+     * Node selector to be notified when the session finishes.
+     */
+    private final RemoteNodeSelector nodeSelector;
+
+    /**
+     * Remote server of the session.
+     */
+    private final URL remoteAddress;
+
+    /**
+     * Constructor
+     * 
+     * @param remoteAddress
+     *            URL of the remote server
+     * @param capabilities
+     *            desired capabilities of the session
+     */
+    public EmergyaRemoteDriver(URL remoteAddress, Capabilities capabilities) {
+        this(null, remoteAddress, capabilities);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param nodeSelector
+     *            which chose the remote server, it's notified when the driver
+     *            quits. It could be null
+     * @param remoteAddress
+     *            URL of the remote server
+     * @param capabilities
+     *            desired capabilities of the session
+     */
+    public EmergyaRemoteDriver(RemoteNodeSelector nodeSelector, URL remoteAddress, Capabilities capabilities) {
+        super(remoteAddress, capabilities);
+        this.nodeSelector = nodeSelector;
+        this.remoteAddress = remoteAddress;
+        // the files to upload are sent to the remote server
+        setFileDetector(new LocalFileDetector());
+        mainWindowHandler = EmergyaWebDriverUtil.getCurrentWindowHandler(this);
+    }
+
+    /**
+     * @see org.openqa.selenium.WebDriver#quit()
+     */
+    @Override
+    public void quit() {
+        try {
+            super.quit();
+        } finally {
+            if (nodeSelector != null) {
+                nodeSelector.release(remoteAddress);
+            }
+        }
+    }
+
+    /**
+     * Returns the URL of the remote server of the session.
+     * 
+     * @return the remote server URL
+     */
+    public URL getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * @see org.openqa.selenium.remote.RemoteWebDriver#execute(String, Map)
+     */
+    @Override
+    protected Response execute(String driverCommand, Map<String, ?> parameters) {
+        commandCount++;
+        return super.execute(driverCommand, parameters);
+    }
+
+    // **** Basic operation methods section ****//
+    /**
+     * Checks if an element exists in the DOM
+     * 
+     * @param selector
+     *            By element
+     * @return True if the element exists in the DOM and false in the opposite
+     *         case
+     */
+    public boolean existsElement(By selector) {
+        return EmergyaWebDriverUtil.existsElement(this, selector);
+    }
+
+    /**
+     * Checks if an element exists in the DOM and is displayed
+     * 
+     * @param selector
+     *            By element
+     * @return True if the element exists in the DOM and is displayed and false
+     *         in the opposite case
+     */
+    public boolean isElementDisplayed(By selector) {
+        return EmergyaWebDriverUtil.isElementDisplayed(this, selector);
+    }
+
+    /**
+     * Checks right now if an element is displayed, with a single probe that is
+     * not delayed by the implicit wait
+     * 
+     * @param selector
+     *            By element
+     * @return True if the element exists in the DOM and is displayed and false
+     *         in the opposite case
+     */
+    public boolean isElementDisplayedNow(By selector) {
+        return EmergyaWebDriverUtil.isElementDisplayedNow(this, selector);
+    }
+
+    /**
+     * Clicks on an element after wait and if it is displayed
+     * 
+     * @param selector
+     *            By element
+     */
+    public void clickIfExists(By selector) {
+        EmergyaWebDriverUtil.clickIfExists(this, selector);
+    }
+
+    // **** Javascript methods section ****//
+    /**
+     * Executes JavaScript in the context of the currently window
+     * 
+     * @param script
+     *            The JavaScript to execute
+     * @return Boolean, Long, String, List, WebElement Or null
+     */
+    public Object executeJavaScript(String script) {
+        return EmergyaWebDriverUtil.executeJavaScript(this, script);
+    }
+
+    /**
+     * Puts the focus on an element through its id
+     * 
+     * @param driver
+     *            WebDriver element
+     * @param id
+     *            string with the id of an element
+     */
+    public void focus(String id) {
+        EmergyaWebDriverUtil.focus(this, id);
+    }
+
+    // **** Screenshot methods section ****//
+    /**
+     * Saves a screenshot in a path with a timestamp
+     * 
+     * @param folderPath
+     *            to save the screenshot
+     * @param baseFileName
+     *            file name
+     */
+    public void saveScreenshotPath(String folderPath, String baseFileName) {
+        EmergyaWebDriverUtil.saveScreenshotPath(this, folderPath, baseFileName);
+    }
+
+    /**
+     * Saves a screenshot in the default path
+     * 
+     * @param driver
+     *            WebDriver element
+     */
+    public void saveScreenshotDefault() {
+        EmergyaWebDriverUtil.saveScreenshotDefault(this);
+    }
+
+    /**
+     * Saves a screenshot in the default path without blocking the caller
+     * 
+     * @return future with the saved file, or null if it couldn't be saved
+     */
+    public CompletableFuture<File> saveScreenshotAsync() {
+        return EmergyaWebDriverUtil.saveScreenshotAsync(this);
+    }
+
+    // **** Sleep method ****//
+    /**
+     * Stops the execution during some seconds
+     * 
+     * @param seconds
+     *            time to stop the execution
+     */
+    public void sleep(int seconds) {
+        EmergyaWebDriverUtil.sleep(seconds);
+    }
+
+    // **** Keyboard events methods section ****//
+    /**
+     * Presses a keyboard key
+     * 
+     * @param key
+     *            to press
+     * @param sleepTime
+     *            time to wait before and after to press the key
+     */
+    public void pressKey(int key, int sleepTime) {
+        EmergyaWebDriverUtil.pressKey(key, sleepTime);
+    }
+
+    /**
+     * Releases a keyboard key
+     * 
+     * @param key
+     *            to release
+     * @param sleepTime
+     *            time to wait before and after to release the key
+     */
+    public void releaseKey(int key, int sleepTime) {
+        EmergyaWebDriverUtil.releaseKey(key, sleepTime);
+    }
+
+    /**
+     * Presses and releases a keyboard key
+     * 
+     * @param key
+     *            to press and release
+     */
+    public void pressReleaseKey(int key) {
+        EmergyaWebDriverUtil.pressReleaseKey(key);
+    }
+
+    // **** Mouse events methods section ****//
+    /**
+     * Moves the mouse over an element
+     * 
+     * @param selector
+     *            By element
+     */
+    public void moveMouseOverElement(By selector) {
+        EmergyaWebDriverUtil.moveMouseOverElement(this, selector);
+    }
+
+    /**
+     * Moves the mouse out of an element
+     * 
+     * @param selector
+     *            By element
+     */
+    public void moveMouseOutElement(By selector) {
+        EmergyaWebDriverUtil.moveMouseOutElement(this, selector);
+    }
+
+    /**
+     * Clicks with the mouse on an element
+     * 
+     * @param selector
+     *            By element
+     */
+    public void clickOnWithMouse(By selector) {
+        EmergyaWebDriverUtil.clickOnWithMouse(this, selector);
+    }
+
+    /**
+     * Clicks with the mouse out of an element
+     * 
+     * @param selector
+     *            By element
+     */
+    public void clickOutWithMouse(By selector) {
+        EmergyaWebDriverUtil.clickOutWithMouse(this, selector);
+    }
+
+    /**
+     * Double clicks with the mouse on an element
+     * 
+     * @param selector
+     *            By element
+     */
+    public void doubleClickOnWithMouse(By selector) {
+        EmergyaWebDriverUtil.doubleClickOnWithMouse(this, selector);
+
+    }
+
+    // **** Wait methods section ****//
+    /**
+     * It sleeps the driver for X seconds. If the element is visible in the
+     * page, the execution continue without waiting X seconds
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to be slept
+     * @return true if the element exist in the DOM and false in the opposite
+     *         case
+     */
+    public boolean wait(By selector, long seconds) {
+        return EmergyaWebDriverUtil.wait(this, selector, seconds);
+    }
+
+    /**
+     * It sleeps the driver for X seconds. If the element is visible in the
+     * page, the execution continue without waiting X seconds
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to be slept
+     * @return true if the element is visible in the page and false in the
+     *         opposite case
+     */
+    public boolean waitUntilVisible(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitUntilVisible(this, selector, seconds);
+    }
+
+    /**
+     * It sleeps the driver for X seconds. If the element is clickable in the
+     * page, the execution continue without waiting X seconds
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to be slept
+     * @return true if the element is clickable in the page and false in the
+     *         opposite case
+     */
+    public boolean waitUntilElementClickable(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitUntilElementClickable(this, selector, seconds);
+    }
+
+    /**
+     * It sleeps the driver for X seconds. If the text is present in element,
+     * the execution continue without waiting X seconds
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to be slept
+     * @param text
+     *            to be find
+     * @return true If the text is present in element, and false in the opposite
+     *         case
+     */
+    public boolean waitUntilTextPresent(By selector, long seconds, String text) {
+        return EmergyaWebDriverUtil.waitUntilTextPresent(this, selector, seconds, text);
+    }
+
+    /**
+     * It sleeps the driver for X seconds. If the element is not visible in the
+     * page, the execution continue without waiting X seconds
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to be slept
+     * @return true if the element is not visible in the page and false in the
+     *         opposite case
+     */
+    public boolean waitUntilNotVisible(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitUntilNotVisible(this, selector, seconds);
+    }
+
+    /**
+     * It waits until a composed condition is satisfied. The whole condition is
+     * checked in each tick of one polling loop
+     * 
+     * @param condition
+     *            to be satisfied, built with the {@link WaitCondition} methods
+     * @param seconds
+     *            to wait as maximum
+     * @return true if the condition was satisfied and false in the opposite
+     *         case
+     */
+    public boolean waitUntil(WaitCondition condition, long seconds) {
+        return EmergyaWebDriverUtil.waitUntil(this, condition, seconds);
+    }
+
+    /**
+     * It waits without blocking the caller until the element exists in the DOM
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return future with the element, or null if it's missing in the DOM
+     */
+    public CompletableFuture<WebElement> waitForElementAsync(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitForElementAsync(this, selector, seconds);
+    }
+
+    /**
+     * It waits without blocking the caller until the element is visible in the
+     * page
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return future with the element, or null if it's not visible in the page
+     */
+    public CompletableFuture<WebElement> waitForVisibleElementAsync(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitForVisibleElementAsync(this, selector, seconds);
+    }
+
+    /**
+     * It waits without blocking the caller until a composed condition is
+     * satisfied
+     * 
+     * @param condition
+     *            to be satisfied, built with the {@link WaitCondition} methods
+     * @param seconds
+     *            to wait as maximum
+     * @return future with true, or null if the condition wasn't satisfied
+     */
+    public CompletableFuture<Boolean> waitUntilAsync(WaitCondition condition, long seconds) {
+        return EmergyaWebDriverUtil.waitUntilAsync(this, condition, seconds);
+    }
+
+    /**
+     * It waits until the network of the page is idle: no more than maxInflight
+     * XHR/fetch requests in flight during quietMillis milliseconds
+     * 
+     * @param maxInflight
+     *            requests allowed in flight
+     * @param quietMillis
+     *            milliseconds without network activity
+     * @param seconds
+     *            to wait as maximum
+     * @return true if the network became idle and false in the opposite case
+     */
+    public boolean waitForNetworkIdle(int maxInflight, long quietMillis, long seconds) {
+        return EmergyaWebDriverUtil.waitForNetworkIdle(this, maxInflight, quietMillis, seconds);
+    }
+
+    /**
+     * Instruments the page to count the XHR/fetch requests in flight. Call it
+     * before the action whose requests are waited for with
+     * {@link #waitForNetworkIdle(int, long, long)}, and again after a
+     * navigation
+     */
+    public void armNetworkTracking() {
+        EmergyaWebDriverUtil.armNetworkTracking(this);
+    }
+
+    /**
+     * It waits until the element exists in the DOM and returns it
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return the element or null if it's missing in the DOM
+     */
+    public WebElement waitForElement(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitForElement(this, selector, seconds);
+    }
+
+    /**
+     * It waits until the element is visible in the page and returns it
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return the element or null if it's not visible in the page
+     */
+    public WebElement waitForVisibleElement(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitForVisibleElement(this, selector, seconds);
+    }
+
+    /**
+     * It waits until at least one element exists in the DOM and returns all of
+     * them
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return the elements or an empty list if they are missing in the DOM
+     */
+    public List<WebElement> waitForElements(By selector, long seconds) {
+        return EmergyaWebDriverUtil.waitForElements(this, selector, seconds);
+    }
+
+    /**
+     * @see EmergyaWebDriver#switchToMainwindow()
+     */
+    @Override
+    public void switchToMainwindow() {
+        this.sleep(1);
+        this.switchTo().window(mainWindowHandler);
+        this.sleep(1);
+    }
+
+    /**
+     * @see EmergyaWebDriver#isCurrentWindowOpen()
+     */
+    @Override
+    public Boolean isCurrentWindowOpen() {
+        return EmergyaWebDriverUtil.isCurrentWindowOpen(this);
+    }
+
+    /**
+     * @see EmergyaWebDriver#getCommandCount()
+     */
+    @Override
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+}
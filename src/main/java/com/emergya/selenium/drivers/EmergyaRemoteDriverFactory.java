@@ -0,0 +1,135 @@
+package com.emergya.selenium.drivers;
+
+import java.net.URL;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import com.emergya.selenium.utils.Initialization;
+import com.emergya.selenium.utils.StartupTimings;
+
+/**
+ * Factory of {@link EmergyaRemoteDriver} instances. The sessions are spread
+ * across the configured remote servers (remoteHubUrls) with a
+ * {@link RemoteNodeSelector}. If a server can't start the session, the next one
+ * is tried.
+ */
+public class EmergyaRemoteDriverFactory implements EmergyaDriverFactory {
+
+    private static Logger log = Logger.getLogger(EmergyaRemoteDriverFactory.class);
+
+    /**
+     * Selector of the remote servers, built with the first session.
+     */
+    private volatile RemoteNodeSelector nodeSelector;
+
+    /**
+     * @see EmergyaDriverFactory#supports(String, String)
+     */
+    @Override
+    public boolean supports(String browser, String os) {
+        return "Remote".equalsIgnoreCase(browser);
+    }
+
+    /**
+     * @see EmergyaDriverFactory#createDriver(Initialization)
+     */
+    @Override
+    public EmergyaWebDriver createDriver(Initialization config) {
+        RemoteNodeSelector selector = getNodeSelector(config);
+        long start = System.nanoTime();
+        DesiredCapabilities capabilities = getCapabilities(config);
+        StartupTimings.phase("profile", start);
+
+        WebDriverException lastError = null;
+        for (int i = 0; i < selector.getNodes().size(); i++) {
+            URL node = selector.acquire();
+            try {
+                EmergyaRemoteDriver driver = new EmergyaRemoteDriver(selector, node, capabilities);
+                log.info("Remote session started at " + node + " (" + selector.getActiveSessions(node)
+                        + " active sessions)");
+                return driver;
+            } catch (WebDriverException e) {
+                selector.release(node);
+                log.warn("The remote server " + node + " couldn't start the session: " + e.getMessage());
+                lastError = e;
+            }
+        }
+        throw new WebDriverException("No remote server could start the session", lastError);
+    }
+
+    /**
+     * @see EmergyaDriverFactory#isWindowSizedAtLaunch(Initialization)
+     */
+    @Override
+    public boolean isWindowSizedAtLaunch(Initialization config) {
+        return isChrome(config) && new EmergyaChromeDriverFactory().isWindowSizedAtLaunch(config);
+    }
+
+    // **** Private methods section ****//
+    /**
+     * Returns the selector of the remote servers, building it the first time.
+     *
+     * @param config
+     *            with the remote servers and the selection strategy
+     * @return the node selector
+     */
+    private RemoteNodeSelector getNodeSelector(Initialization config) {
+        if (nodeSelector == null) {
+            synchronized (this) {
+                if (nodeSelector == null) {
+                    nodeSelector = new RemoteNodeSelector(config.getRemoteHubUrls(),
+                            config.getRemoteNodeSelection());
+                    log.info("Remote servers: " + nodeSelector.getNodes() + ", selection: "
+                            + config.getRemoteNodeSelection());
+                }
+            }
+        }
+        return nodeSelector;
+    }
+
+    /**
+     * Builds the capabilities of the remote browser, with the same settings as
+     * the local drivers.
+     *
+     * @param config
+     *            with the remote browser
+     * @return the desired capabilities
+     */
+    private DesiredCapabilities getCapabilities(Initialization config) {
+        String remoteBrowser = config.getRemoteBrowser();
+        DesiredCapabilities capabilities;
+
+        if (isChrome(config)) {
+            capabilities = DesiredCapabilities.chrome();
+            capabilities.setCapability(ChromeOptions.CAPABILITY, EmergyaChromeDriverFactory.buildOptions(config));
+        } else if ("IE".equalsIgnoreCase(remoteBrowser)) {
+            capabilities = DesiredCapabilities.internetExplorer();
+        } else if ("Firefox".equalsIgnoreCase(remoteBrowser)) {
+            capabilities = DesiredCapabilities.firefox();
+            // the profile is encoded once and sent with every session
+            capabilities.setCapability(FirefoxDriver.PROFILE,
+                    config.getFirefoxProfileTemplate().getEncodedProfile());
+            if (config.isHeadless()) {
+                log.warn("Headless mode isn't supported for remote Firefox, starting it with window");
+            }
+        } else {
+            throw new WebDriverException("Remote browser not supported: " + remoteBrowser);
+        }
+        return capabilities;
+    }
+
+    /**
+     * Checks if the remote browser is Chrome.
+     *
+     * @param config
+     *            with the remote browser
+     * @return true for Chrome
+     */
+    private boolean isChrome(Initialization config) {
+        return "Chrome".equalsIgnoreCase(config.getRemoteBrowser());
+    }
+}
@@ -1,6 +1,8 @@
 package com.emergya.selenium.drivers;
 
+import java.io.File;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
@@ -35,6 +37,17 @@ public interface EmergyaWebDriver extends WebDriver {
      */
     public boolean isElementDisplayed(By selector);
 
+    /**
+     * Checks right now if an element is displayed, with a single probe that is
+     * not delayed by the implicit wait
+     * 
+     * @param selector
+     *            By element
+     * @return True if the element exists in the DOM and is displayed and false
+     *         in the opposite case
+     */
+    public boolean isElementDisplayedNow(By selector);
+
     /**
      * Clicks on an element after wait and if it is displayed
      * 
@@ -82,6 +95,13 @@ public interface EmergyaWebDriver extends WebDriver {
      */
     public void saveScreenshotDefault();
 
+    /**
+     * Saves a screenshot in the default path without blocking the caller
+     * 
+     * @return future with the saved file, or null if it couldn't be saved
+     */
+    public CompletableFuture<File> saveScreenshotAsync();
+
     // **** Sleep method ****//
     /**
      * Stops the execution during some seconds
@@ -216,6 +236,123 @@ public interface EmergyaWebDriver extends WebDriver {
      */
     public boolean waitUntilTextPresent(By selector, long seconds, String text);
 
+    /**
+     * It sleeps the driver for X seconds. If the element is not visible in the
+     * page, the execution continue without waiting X seconds
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to be slept
+     * @return true if the element is not visible in the page and false in the
+     *         opposite case
+     */
+    public boolean waitUntilNotVisible(By selector, long seconds);
+
+    /**
+     * It waits until a composed condition is satisfied. The whole condition is
+     * checked in each tick of one polling loop
+     * 
+     * @param condition
+     *            to be satisfied, built with the {@link WaitCondition} methods
+     * @param seconds
+     *            to wait as maximum
+     * @return true if the condition was satisfied and false in the opposite
+     *         case
+     */
+    public boolean waitUntil(WaitCondition condition, long seconds);
+
+    /**
+     * It waits without blocking the caller until the element exists in the DOM
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return future with the element, or null if it's missing in the DOM
+     */
+    public CompletableFuture<WebElement> waitForElementAsync(By selector, long seconds);
+
+    /**
+     * It waits without blocking the caller until the element is visible in the
+     * page
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return future with the element, or null if it's not visible in the page
+     */
+    public CompletableFuture<WebElement> waitForVisibleElementAsync(By selector, long seconds);
+
+    /**
+     * It waits without blocking the caller until a composed condition is
+     * satisfied
+     * 
+     * @param condition
+     *            to be satisfied, built with the {@link WaitCondition} methods
+     * @param seconds
+     *            to wait as maximum
+     * @return future with true, or null if the condition wasn't satisfied
+     */
+    public CompletableFuture<Boolean> waitUntilAsync(WaitCondition condition, long seconds);
+
+    /**
+     * It waits until the network of the page is idle: no more than maxInflight
+     * XHR/fetch requests in flight during quietMillis milliseconds
+     * 
+     * @param maxInflight
+     *            requests allowed in flight
+     * @param quietMillis
+     *            milliseconds without network activity
+     * @param seconds
+     *            to wait as maximum
+     * @return true if the network became idle and false in the opposite case
+     */
+    public boolean waitForNetworkIdle(int maxInflight, long quietMillis, long seconds);
+
+    /**
+     * Instruments the page to count the XHR/fetch requests in flight. Call it
+     * before the action whose requests are waited for with
+     * {@link #waitForNetworkIdle(int, long, long)}, and again after a
+     * navigation
+     */
+    public void armNetworkTracking();
+
+    /**
+     * It waits until the element exists in the DOM and returns it
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return the element or null if it's missing in the DOM
+     */
+    public WebElement waitForElement(By selector, long seconds);
+
+    /**
+     * It waits until the element is visible in the page and returns it
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return the element or null if it's not visible in the page
+     */
+    public WebElement waitForVisibleElement(By selector, long seconds);
+
+    /**
+     * It waits until at least one element exists in the DOM and returns all of
+     * them
+     * 
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return the elements or an empty list if they are missing in the DOM
+     */
+    public List<WebElement> waitForElements(By selector, long seconds);
+
     // **** BasePageObject needed methods section ****//
     /**
      * Finds elements by xpath
@@ -265,4 +402,12 @@ public interface EmergyaWebDriver extends WebDriver {
      */
     public Boolean isCurrentWindowOpen();
 
+    /**
+     * Returns the number of commands sent to the browser by this driver, used
+     * to recycle long-lived drivers.
+     * 
+     * @return number of executed commands
+     */
+    public long getCommandCount();
+
 }
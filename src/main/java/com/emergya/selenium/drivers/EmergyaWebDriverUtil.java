@@ -7,21 +7,32 @@ import java.awt.event.InputEvent;
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.openqa.selenium.By;
+import org.openqa.selenium.InvalidElementStateException;
 import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NotFoundException;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.Point;
 import org.openqa.selenium.TakesScreenshot;
-import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 
+import com.emergya.selenium.utils.Deadline;
 import com.emergya.selenium.utils.Initialization;
+import com.emergya.selenium.utils.Poller;
+import com.emergya.selenium.utils.WaitScheduler;
+import com.emergya.selenium.utils.WaitTimeouts;
 
 /**
  * Implements personalized methods to WebDriver
@@ -33,6 +44,38 @@ public class EmergyaWebDriverUtil {
 
     private static Logger log = Logger.getLogger(EmergyaWebDriverUtil.class);
 
+    /**
+     * Script to check if the first element of a selector is displayed.
+     * Arguments: selector kind and value.
+     */
+    private static final String IS_DISPLAYED_SCRIPT = JsSelector.FUNCTIONS
+            + " return emergyaVisible(emergyaFind(arguments[0], arguments[1]));";
+
+    /**
+     * Script to get the first element of a selector if it's displayed and
+     * enabled. Arguments: selector kind and value.
+     */
+    private static final String CLICKABLE_SCRIPT = JsSelector.FUNCTIONS
+            + " var element = emergyaFind(arguments[0], arguments[1]);"
+            + " return emergyaVisible(element) && !element.disabled ? element : null;";
+
+    /**
+     * Consecutive failures of a check script after which a wait uses WebDriver
+     * calls instead.
+     */
+    private static final int MAX_SCRIPT_FAILURES = 3;
+
+    /**
+     * Seconds to wait for an element to be clicked, unless autoTimeouts derives
+     * another one from the recorded clicks of the selector.
+     */
+    private static final long CLICK_TIMEOUT = 20;
+
+    /**
+     * Counter of the asynchronous screenshots, to give them unique names.
+     */
+    private static final AtomicInteger asyncScreenshots = new AtomicInteger();
+
     // **** Basic operation methods section ****//
     /**
      * Checks if an element exists in the DOM
@@ -88,22 +131,121 @@ public class EmergyaWebDriverUtil {
     }
 
     /**
-     * Clicks on an element after wait and if it is displayed
+     * Checks right now if an element is displayed, with a single probe that is
+     * not delayed by the implicit wait. It's meant for negative checks, which
+     * would otherwise wait the whole timeout
+     * 
+     * @param driver
+     *            WebDriver element
+     * @param selector
+     *            By element
+     * @return True if the element exists in the DOM and is displayed and false
+     *         in the opposite case
+     */
+    public static boolean isElementDisplayedNow(EmergyaWebDriver driver, By selector) {
+        log.info("[log-Utils] EmergyaWebDriverUtil - Start isElementDisplayedNow method");
+
+        boolean isDisplayed = false;
+        JsSelector jsSelector = JsSelector.of(selector);
+
+        try {
+            if (jsSelector != null) {
+                isDisplayed = Boolean.TRUE.equals(((JavascriptExecutor) driver).executeScript(
+                        IS_DISPLAYED_SCRIPT, jsSelector.getKind(), jsSelector.getValue()));
+            } else {
+                for (WebElement element : driver.findElements(selector)) {
+                    if (element.isDisplayed()) {
+                        isDisplayed = true;
+                        break;
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            isDisplayed = false;
+        }
+
+        log.info("[log-Utils] EmergyaWebDriverUtil - End isElementDisplayedNow method");
+
+        return isDisplayed;
+    }
+
+    /**
+     * Clicks on an element after wait and if it is displayed. The element is
+     * located, checked (displayed and enabled) and clicked in the same polling
+     * sequence: each check is one script that returns the clickable element
+     * (or findElement + isDisplayed + isEnabled when the selector can't be
+     * resolved in the browser) and the native click is done on that element,
+     * retrying if it's stale or covered by another element. It waits 20
+     * seconds, or the time derived from the recorded clicks of the selector
+     * with autoTimeouts
      * 
      * @param driver
      *            WebDriver element
      * @param selector
      *            By element
      */
-    public static void clickIfExists(EmergyaWebDriver driver, By selector) {
+    public static void clickIfExists(final EmergyaWebDriver driver, final By selector) {
         log.info("[log-Utils] EmergyaWebDriverUtil - Start clickIfExists method");
 
-        wait(driver, selector, 20);
+        WaitTimeouts waitTimeouts = Initialization.getInstance().getWaitTimeouts();
+        String key = ObserverWaits.CLICKABLE + ":" + selector;
+        long start = System.currentTimeMillis();
+        long timeout = Deadline.clamp(waitTimeouts.getTimeout(key, CLICK_TIMEOUT) * 1000);
+        WebElement clicked = null;
+
+        if (Initialization.getInstance().isObserverWaitEngine() && ObserverWaits.supports(selector)) {
+            try {
+                Object found = ObserverWaits.waitInBrowser(driver, selector, ObserverWaits.CLICKABLE, null, timeout);
+                if (found instanceof WebElement) {
+                    clicked = click((WebElement) found) ? (WebElement) found : null;
+                }
+            } catch (WebDriverException e) {
+                log.warn("The wait couldn't be resolved in the browser, polling: " + e.getMessage());
+            }
+            timeout = Math.max(0, timeout - (System.currentTimeMillis() - start));
+        }
+
+        if (clicked == null) {
+            final JsSelector jsSelector = JsSelector.of(selector);
+            clicked = poll(key, new Poller.Probe<WebElement>() {
+                private int scriptFailures = jsSelector == null ? MAX_SCRIPT_FAILURES : 0;
+
+                @Override
+                public WebElement probe() {
+                    WebElement element = null;
+                    if (scriptFailures < MAX_SCRIPT_FAILURES) {
+                        try {
+                            element = (WebElement) ((JavascriptExecutor) driver).executeScript(CLICKABLE_SCRIPT,
+                                    jsSelector.getKind(), jsSelector.getValue());
+                            scriptFailures = 0;
+                        } catch (ClassCastException e) {
+                            log.warn("The element couldn't be located in the browser, using WebDriver: "
+                                    + e.getMessage());
+                            scriptFailures = MAX_SCRIPT_FAILURES;
+                        } catch (WebDriverException e) {
+                            // e.g. a navigation in progress, tried again in the next tick
+                            scriptFailures++;
+                            log.warn("The element couldn't be located in the browser (" + scriptFailures + "/"
+                                    + MAX_SCRIPT_FAILURES + "): " + e.getMessage());
+                            return null;
+                        }
+                    }
+                    if (scriptFailures >= MAX_SCRIPT_FAILURES) {
+                        try {
+                            element = ExpectedConditions.elementToBeClickable(selector).apply(driver);
+                        } catch (NotFoundException | StaleElementReferenceException e) {
+                            element = null;
+                        }
+                    }
+                    return element != null && click(element) ? element : null;
+                }
+            }, timeout);
+        }
 
-        if (isElementDisplayed(driver, selector)) {
-            driver.findElement(selector).click();
-        } else {
+        if (clicked == null) {
             log.error("The element " + selector.toString() + " is not displayed.");
+        } else {
+            waitTimeouts.record(key, System.currentTimeMillis() - start);
         }
 
         log.info("[log-Utils] EmergyaWebDriverUtil - End clickIfExists method");
@@ -185,6 +327,49 @@ public class EmergyaWebDriverUtil {
         log.info("[log-Utils] EmergyaWebDriverUtil - End saveScreenshotDefault method");
     }
 
+    /**
+     * Saves a screenshot in the default path without blocking the caller. The
+     * screenshot is taken by the {@link WaitScheduler} threads, so it overlaps
+     * with other asynchronous waits
+     * 
+     * @param driver
+     *            WebDriver element
+     * @return future with the saved file, or null if it couldn't be saved
+     */
+    public static CompletableFuture<File> saveScreenshotAsync(final EmergyaWebDriver driver) {
+        log.info("[log-Utils] EmergyaWebDriverUtil - Start saveScreenshotAsync method");
+
+        final String folderPath = Initialization.getInstance().getScreenshotPath();
+        final CompletableFuture<File> future = new CompletableFuture<File>();
+
+        WaitScheduler.getInstance().getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    File scrFile;
+                    synchronized (driver) {
+                        scrFile = ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
+                    }
+                    // millis and a counter, several screenshots can be taken
+                    // in the same second (or millisecond)
+                    String timeStamp = new SimpleDateFormat("dd-MM-yyyy_HH-mm-ss-SSS")
+                            .format(Calendar.getInstance().getTime());
+                    File file = new File(folderPath + File.separator + "_" + timeStamp + "_"
+                            + asyncScreenshots.incrementAndGet() + ".png");
+                    FileUtils.copyFile(scrFile, file);
+                    future.complete(file);
+                } catch (IOException | WebDriverException e) {
+                    log.error("Error creating screenshot", e);
+                    future.complete(null);
+                }
+            }
+        });
+
+        log.info("[log-Utils] EmergyaWebDriverUtil - End saveScreenshotAsync method");
+
+        return future;
+    }
+
     // **** Sleep method ****//
     /**
      * Stops the execution during some seconds
@@ -461,12 +646,10 @@ public class EmergyaWebDriverUtil {
     public static boolean wait(EmergyaWebDriver driver, By selector, long seconds) {
         log.info("[log-Utils] EmergyaWebDriverUtil - Start wait method");
 
-        WebDriverWait w = new WebDriverWait(driver, seconds);
         boolean retVal = true;
 
-        try {
-            w.until(ExpectedConditions.presenceOfElementLocated(selector));
-        } catch (TimeoutException e) {
+        if (waitFor(driver, ObserverWaits.PRESENT, null, selector,
+                ExpectedConditions.presenceOfElementLocated(selector), seconds) == null) {
             retVal = false;
 
             log.error("The element: " + selector.toString() + " is missing in the DOM. Waiting time: " + seconds
@@ -494,12 +677,10 @@ public class EmergyaWebDriverUtil {
     public static boolean waitUntilVisible(EmergyaWebDriver driver, By selector, long seconds) {
         log.info("[log-Utils] EmergyaWebDriverUtil - Start waitUntilVisible method");
 
-        WebDriverWait w = new WebDriverWait(driver, seconds);
         boolean retVal = true;
 
-        try {
-            w.until(ExpectedConditions.visibilityOfElementLocated(selector));
-        } catch (TimeoutException e) {
+        if (waitFor(driver, ObserverWaits.VISIBLE, null, selector,
+                ExpectedConditions.visibilityOfElementLocated(selector), seconds) == null) {
             retVal = false;
 
             log.error("The element: " + selector.toString() + " is not visible in the page. Waiting time: " + seconds
@@ -527,12 +708,10 @@ public class EmergyaWebDriverUtil {
     public static boolean waitUntilElementClickable(EmergyaWebDriver driver, By selector, long seconds) {
         log.info("[log-Utils] EmergyaWebDriverUtil - Start waitUntilElementClickable method");
 
-        WebDriverWait w = new WebDriverWait(driver, seconds);
         boolean retVal = true;
 
-        try {
-            w.until(ExpectedConditions.elementToBeClickable(selector));
-        } catch (TimeoutException e) {
+        if (waitFor(driver, ObserverWaits.CLICKABLE, null, selector,
+                ExpectedConditions.elementToBeClickable(selector), seconds) == null) {
             retVal = false;
 
             log.error("The element: " + selector.toString() + " is not clickable. Waiting time: " + seconds
@@ -562,12 +741,10 @@ public class EmergyaWebDriverUtil {
     public static boolean waitUntilTextPresent(EmergyaWebDriver driver, By selector, long seconds, String text) {
         log.info("[log-Utils] EmergyaWebDriverUtil - Start waitUntilTextPresent method");
 
-        WebDriverWait w = new WebDriverWait(driver, seconds);
         boolean retVal = true;
 
-        try {
-            w.until(ExpectedConditions.textToBePresentInElementLocated(selector, text));
-        } catch (TimeoutException e) {
+        if (waitFor(driver, ObserverWaits.TEXT, text, selector,
+                ExpectedConditions.textToBePresentInElementLocated(selector, text), seconds) == null) {
             retVal = false;
 
             log.error("The text: " + text + " in the element: " + selector.toString()
@@ -579,6 +756,308 @@ public class EmergyaWebDriverUtil {
         return retVal;
     }
 
+    /**
+     * It sleeps the driver for X seconds. If the element is not visible in the
+     * page (hidden or missing in the DOM), the execution continue without
+     * waiting X seconds
+     * 
+     * @param driver
+     *            WebDriver element for sleep
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to be slept
+     * @return true if the element is not visible in the page and false in the
+     *         opposite case
+     */
+    public static boolean waitUntilNotVisible(EmergyaWebDriver driver, By selector, long seconds) {
+        log.info("[log-Utils] EmergyaWebDriverUtil - Start waitUntilNotVisible method");
+
+        boolean retVal = true;
+
+        if (waitFor(driver, ObserverWaits.INVISIBLE, null, selector,
+                ExpectedConditions.invisibilityOfElementLocated(selector), seconds) == null) {
+            retVal = false;
+
+            log.error("The element: " + selector.toString() + " is still visible in the page. Waiting time: "
+                    + seconds + " seconds");
+        }
+
+        log.info("[log-Utils] EmergyaWebDriverUtil - End waitUntilNotVisible method");
+
+        return retVal;
+    }
+
+    /**
+     * It waits until the element exists in the DOM and returns it, so the
+     * element is not looked for again after the wait
+     * 
+     * @param driver
+     *            WebDriver element
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return the element or null if it's missing in the DOM
+     */
+    public static WebElement waitForElement(EmergyaWebDriver driver, By selector, long seconds) {
+        log.info("[log-Utils] EmergyaWebDriverUtil - Start waitForElement method");
+
+        Object found = waitFor(driver, ObserverWaits.PRESENT, null, selector,
+                ExpectedConditions.presenceOfElementLocated(selector), seconds);
+
+        if (found == null) {
+            log.error("The element: " + selector.toString() + " is missing in the DOM. Waiting time: " + seconds
+                    + " seconds");
+        }
+
+        log.info("[log-Utils] EmergyaWebDriverUtil - End waitForElement method");
+
+        return (WebElement) found;
+    }
+
+    /**
+     * It waits until the element is visible in the page and returns it, so the
+     * element is not looked for again after the wait
+     * 
+     * @param driver
+     *            WebDriver element
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return the element or null if it's not visible in the page
+     */
+    public static WebElement waitForVisibleElement(EmergyaWebDriver driver, By selector, long seconds) {
+        log.info("[log-Utils] EmergyaWebDriverUtil - Start waitForVisibleElement method");
+
+        Object found = waitFor(driver, ObserverWaits.VISIBLE, null, selector,
+                ExpectedConditions.visibilityOfElementLocated(selector), seconds);
+
+        if (found == null) {
+            log.error("The element: " + selector.toString() + " is not visible in the page. Waiting time: " + seconds
+                    + " seconds");
+        }
+
+        log.info("[log-Utils] EmergyaWebDriverUtil - End waitForVisibleElement method");
+
+        return (WebElement) found;
+    }
+
+    /**
+     * It waits until at least one element exists in the DOM and returns all
+     * of them, so the elements are not looked for again after the wait
+     * 
+     * @param driver
+     *            WebDriver element
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return the elements or an empty list if they are missing in the DOM
+     */
+    @SuppressWarnings("unchecked")
+    public static List<WebElement> waitForElements(EmergyaWebDriver driver, By selector, long seconds) {
+        log.info("[log-Utils] EmergyaWebDriverUtil - Start waitForElements method");
+
+        // the list is always polled, the browser wait returns just one element
+        Object found = pollFor(driver, ObserverWaits.PRESENT + "All", null,
+                ExpectedConditions.presenceOfAllElementsLocatedBy(selector), selector, seconds * 1000);
+
+        if (found == null) {
+            log.error("The elements: " + selector.toString() + " are missing in the DOM. Waiting time: " + seconds
+                    + " seconds");
+        }
+
+        log.info("[log-Utils] EmergyaWebDriverUtil - End waitForElements method");
+
+        return found != null ? (List<WebElement>) found : new ArrayList<WebElement>();
+    }
+
+    /**
+     * It waits until a composed condition is satisfied. The whole condition is
+     * checked in each tick of one polling loop, with one script execution when
+     * all its selectors can be resolved in the browser, so several conditions
+     * don't need several consecutive waits
+     * 
+     * @param driver
+     *            WebDriver element
+     * @param condition
+     *            to be satisfied, built with the {@link WaitCondition} methods
+     * @param seconds
+     *            to wait as maximum
+     * @return true if the condition was satisfied and false in the opposite
+     *         case
+     */
+    public static boolean waitUntil(final EmergyaWebDriver driver, final WaitCondition condition, long seconds) {
+        log.info("[log-Utils] EmergyaWebDriverUtil - Start waitUntil method");
+
+        final List<Object> script = condition.toScript();
+        Poller.Probe<Boolean> probe = new Poller.Probe<Boolean>() {
+            private int scriptFailures = script == null ? MAX_SCRIPT_FAILURES : 0;
+
+            @Override
+            public Boolean probe() {
+                if (scriptFailures < MAX_SCRIPT_FAILURES) {
+                    try {
+                        Object satisfied = ((JavascriptExecutor) driver).executeScript(WaitCondition.CHECK_SCRIPT,
+                                script);
+                        scriptFailures = 0;
+                        return Boolean.TRUE.equals(satisfied);
+                    } catch (WebDriverException e) {
+                        // e.g. a navigation in progress, tried again in the next tick
+                        scriptFailures++;
+                        log.warn("The condition couldn't be checked in the browser (" + scriptFailures + "/"
+                                + MAX_SCRIPT_FAILURES + "): " + e.getMessage());
+                        return false;
+                    }
+                }
+                return condition.isSatisfied(driver);
+            }
+        };
+
+        boolean retVal = poll("condition:" + condition, probe, Deadline.clamp(seconds * 1000)) != null;
+        if (!retVal) {
+            log.error("The condition: " + condition + " is not satisfied. Waiting time: " + seconds + " seconds");
+        }
+
+        log.info("[log-Utils] EmergyaWebDriverUtil - End waitUntil method");
+
+        return retVal;
+    }
+
+    /**
+     * It waits without blocking the caller until the element exists in the
+     * DOM. The checks are run by the {@link WaitScheduler}, so several waits,
+     * screenshots and downloads can be started and joined together. The
+     * commands of the asynchronous waits of a driver are serialized, but they
+     * can be interleaved with the commands of the test thread
+     * 
+     * @param driver
+     *            WebDriver element
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return future with the element, or null if it's missing in the DOM
+     */
+    public static CompletableFuture<WebElement> waitForElementAsync(EmergyaWebDriver driver, By selector,
+            long seconds) {
+        log.info("[log-Utils] EmergyaWebDriverUtil - Start waitForElementAsync method");
+
+        CompletableFuture<WebElement> future = pollAsync(driver, ExpectedConditions.presenceOfElementLocated(selector),
+                seconds);
+
+        log.info("[log-Utils] EmergyaWebDriverUtil - End waitForElementAsync method");
+
+        return future;
+    }
+
+    /**
+     * It waits without blocking the caller until the element is visible in the
+     * page. The checks are run by the {@link WaitScheduler}
+     * 
+     * @param driver
+     *            WebDriver element
+     * @param selector
+     *            By element for wait
+     * @param seconds
+     *            to wait as maximum
+     * @return future with the element, or null if it's not visible in the page
+     */
+    public static CompletableFuture<WebElement> waitForVisibleElementAsync(EmergyaWebDriver driver, By selector,
+            long seconds) {
+        log.info("[log-Utils] EmergyaWebDriverUtil - Start waitForVisibleElementAsync method");
+
+        CompletableFuture<WebElement> future = pollAsync(driver,
+                ExpectedConditions.visibilityOfElementLocated(selector), seconds);
+
+        log.info("[log-Utils] EmergyaWebDriverUtil - End waitForVisibleElementAsync method");
+
+        return future;
+    }
+
+    /**
+     * It waits without blocking the caller until a composed condition is
+     * satisfied. The checks are run by the {@link WaitScheduler}
+     * 
+     * @param driver
+     *            WebDriver element
+     * @param condition
+     *            to be satisfied, built with the {@link WaitCondition} methods
+     * @param seconds
+     *            to wait as maximum
+     * @return future with true, or null if the condition wasn't satisfied
+     */
+    public static CompletableFuture<Boolean> waitUntilAsync(final EmergyaWebDriver driver,
+            final WaitCondition condition, long seconds) {
+        log.info("[log-Utils] EmergyaWebDriverUtil - Start waitUntilAsync method");
+
+        CompletableFuture<Boolean> future = Initialization.getInstance().getPoller()
+                .pollAsync(new Poller.Probe<Boolean>() {
+                    @Override
+                    public Boolean probe() {
+                        synchronized (driver) {
+                            return condition.isSatisfied(driver);
+                        }
+                    }
+                }, seconds * 1000);
+
+        log.info("[log-Utils] EmergyaWebDriverUtil - End waitUntilAsync method");
+
+        return future;
+    }
+
+    /**
+     * It waits until the network of the page is idle: no more than maxInflight
+     * XHR/fetch requests in flight during quietMillis milliseconds. It replaces
+     * the fixed sleeps after AJAX actions, arming the page with
+     * {@link #armNetworkTracking(EmergyaWebDriver)} before the action
+     * 
+     * @param driver
+     *            WebDriver element
+     * @param maxInflight
+     *            requests allowed in flight (e.g. long polling connections)
+     * @param quietMillis
+     *            milliseconds without network activity
+     * @param seconds
+     *            to wait as maximum
+     * @return true if the network became idle and false in the opposite case
+     */
+    public static boolean waitForNetworkIdle(EmergyaWebDriver driver, int maxInflight, long quietMillis,
+            long seconds) {
+        log.info("[log-Utils] EmergyaWebDriverUtil - Start waitForNetworkIdle method");
+
+        boolean retVal = NetworkIdleWait.waitForNetworkIdle(driver, maxInflight, quietMillis,
+                Deadline.clamp(seconds * 1000));
+
+        if (!retVal) {
+            log.error("The network is not idle (" + maxInflight + " requests in flight, " + quietMillis
+                    + " ms quiet). Waiting time: " + seconds + " seconds");
+        }
+
+        log.info("[log-Utils] EmergyaWebDriverUtil - End waitForNetworkIdle method");
+
+        return retVal;
+    }
+
+    /**
+     * Instruments the page to count the XHR/fetch requests in flight. Call it
+     * before the action whose requests are waited for with
+     * {@link #waitForNetworkIdle(EmergyaWebDriver, int, long, long)}, so the
+     * requests started by the action are counted
+     * 
+     * @param driver
+     *            WebDriver element
+     */
+    public static void armNetworkTracking(EmergyaWebDriver driver) {
+        log.info("[log-Utils] EmergyaWebDriverUtil - Start armNetworkTracking method");
+
+        NetworkIdleWait.armNetworkTracking(driver);
+
+        log.info("[log-Utils] EmergyaWebDriverUtil - End armNetworkTracking method");
+    }
+
     /**
      * Method to obtain the current window handler.
      * @param @see EmergyaWebDriver
@@ -604,6 +1083,155 @@ public class EmergyaWebDriverUtil {
     }
 
     // **** Private methods section ****//
+    /**
+     * Waits until a condition is satisfied or the time expires. With
+     * waitEngine=observer the condition is resolved inside the browser by
+     * {@link ObserverWaits}, falling back to polling if the script can't be
+     * used. When polling, the intervals are adapted to the latencies observed
+     * for the same condition and selector (adaptivePolling property). The time
+     * is cut to the active {@link Deadline} of the thread.
+     * 
+     * @param driver
+     *            WebDriver element
+     * @param conditionName
+     *            one of the {@link ObserverWaits} conditions
+     * @param text
+     *            of the {@link ObserverWaits#TEXT} condition, otherwise null
+     * @param selector
+     *            By element of the condition
+     * @param condition
+     *            to be satisfied, used when polling
+     * @param seconds
+     *            to wait
+     * @return the result of the condition or null if the time expired
+     */
+    private static Object waitFor(final EmergyaWebDriver driver, String conditionName, String text, By selector,
+            final ExpectedCondition<?> condition, long seconds) {
+        Initialization config = Initialization.getInstance();
+        long timeout = Deadline.clamp(seconds * 1000);
+
+        if (config.isObserverWaitEngine() && ObserverWaits.supports(selector)) {
+            long start = System.currentTimeMillis();
+            try {
+                return ObserverWaits.waitInBrowser(driver, selector, conditionName, text, timeout);
+            } catch (WebDriverException e) {
+                log.warn("The wait couldn't be resolved in the browser, polling: " + e.getMessage());
+                timeout = Math.max(0, timeout - (System.currentTimeMillis() - start));
+            }
+        }
+
+        return pollFor(driver, conditionName, text, condition, selector, timeout);
+    }
+
+    /**
+     * Polls a condition until it's satisfied or the time expires. The
+     * intervals are adapted to the latencies observed for the same condition
+     * and selector (adaptivePolling property).
+     * 
+     * @param driver
+     *            WebDriver element
+     * @param conditionName
+     *            name of the condition, to keep the latencies by condition
+     * @param text
+     *            of the condition, otherwise null
+     * @param condition
+     *            to be satisfied
+     * @param selector
+     *            By element of the condition
+     * @param timeout
+     *            in milliseconds
+     * @return the result of the condition or null if the time expired
+     */
+    private static Object pollFor(final EmergyaWebDriver driver, String conditionName, String text,
+            final ExpectedCondition<?> condition, By selector, long timeout) {
+        Poller.Probe<Object> probe = new Poller.Probe<Object>() {
+            @Override
+            public Object probe() {
+                try {
+                    return condition.apply(driver);
+                } catch (NotFoundException | StaleElementReferenceException e) {
+                    return null;
+                }
+            }
+        };
+
+        return poll(conditionName + (text != null ? "=" + text : "") + ":" + selector, probe, timeout);
+    }
+
+    /**
+     * Polls a condition in the {@link WaitScheduler}. The commands of the
+     * checks of a driver are serialized.
+     * 
+     * @param driver
+     *            WebDriver element
+     * @param condition
+     *            to be satisfied
+     * @param seconds
+     *            to wait
+     * @return future with the result of the condition, or null if the time
+     *         expired
+     */
+    private static <T> CompletableFuture<T> pollAsync(final EmergyaWebDriver driver,
+            final ExpectedCondition<T> condition, long seconds) {
+        return Initialization.getInstance().getPoller().pollAsync(new Poller.Probe<T>() {
+            @Override
+            public T probe() {
+                try {
+                    synchronized (driver) {
+                        return condition.apply(driver);
+                    }
+                } catch (NotFoundException | StaleElementReferenceException e) {
+                    return null;
+                }
+            }
+        }, seconds * 1000);
+    }
+
+    /**
+     * Clicks on an element, tolerating the errors that can be solved by trying
+     * again a bit later.
+     * 
+     * @param element
+     *            to be clicked
+     * @return true if it was clicked, false if it's stale, hidden or covered
+     *         by another element
+     */
+    private static boolean click(WebElement element) {
+        try {
+            element.click();
+            return true;
+        } catch (StaleElementReferenceException | InvalidElementStateException e) {
+            return false;
+        } catch (WebDriverException e) {
+            // e.g. "Element is not clickable at point", covered by an overlay
+            if (e.getMessage() != null && e.getMessage().contains("is not clickable")) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Polls a probe with the adaptive poller (adaptivePolling property) or the
+     * default one.
+     * 
+     * @param key
+     *            of the latencies of the adaptive poller
+     * @param probe
+     *            condition to be checked
+     * @param timeout
+     *            in milliseconds
+     * @return the first result of the probe that is not null or false, or null
+     *         if the timeout expired
+     */
+    private static <T> T poll(String key, Poller.Probe<T> probe, long timeout) {
+        Initialization config = Initialization.getInstance();
+        if (config.isAdaptivePolling()) {
+            return config.getAdaptivePoller().poll(key, probe, timeout);
+        }
+        return config.getPoller().poll(probe, timeout);
+    }
+
     /**
      * Generates a timestamp
      * 
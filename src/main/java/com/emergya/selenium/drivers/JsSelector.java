@@ -0,0 +1,101 @@
+package com.emergya.selenium.drivers;
+
+import org.openqa.selenium.By;
+
+/**
+ * Translation of a {@link By} selector to be resolved inside the browser by
+ * the injected scripts. The scripts include {@link #FUNCTIONS}, which define
+ * <code>emergyaFind(kind, value)</code>, <code>emergyaVisible(element)</code>
+ * and <code>emergyaText(element)</code>.
+ */
+public class JsSelector {
+
+    /**
+     * JavaScript functions to find the first element of a selector, to check
+     * its visibility and to get its visible text. The text is the one of
+     * WebElement.getText(): empty for a hidden element and without the hidden
+     * descendants.
+     */
+    public static final String FUNCTIONS = "function emergyaFind(kind, value) {"
+            + " switch (kind) {"
+            + " case 'id': return document.getElementById(value);"
+            + " case 'name': return document.getElementsByName(value)[0] || null;"
+            + " case 'css': return document.querySelector(value);"
+            + " case 'className': return document.getElementsByClassName(value)[0] || null;"
+            + " case 'tagName': return document.getElementsByTagName(value)[0] || null;"
+            + " case 'xpath': return document.evaluate(value, document, null,"
+            + " XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;"
+            + " case 'linkText': case 'partialLinkText':"
+            + " var links = document.getElementsByTagName('a');"
+            + " for (var i = 0; i < links.length; i++) { var text = (links[i].textContent || '').trim();"
+            + " if (kind === 'linkText' ? text === value : text.indexOf(value) >= 0) { return links[i]; } }"
+            + " return null; }"
+            + " return null; }"
+            + " function emergyaVisible(element) {"
+            + " if (!element) { return false; }"
+            + " var style = window.getComputedStyle(element);"
+            + " return style.display !== 'none' && style.visibility !== 'hidden'"
+            + " && (element.offsetWidth > 0 || element.offsetHeight > 0 || element.getClientRects().length > 0); }"
+            + " function emergyaText(element) {"
+            + " if (!emergyaVisible(element)) { return ''; }"
+            + " return element.innerText !== undefined ? element.innerText : (element.textContent || ''); }";
+
+    /**
+     * Kind of selector: id, name, css, className, tagName, xpath, linkText or
+     * partialLinkText.
+     */
+    private final String kind;
+
+    /**
+     * Value of the selector.
+     */
+    private final String value;
+
+    /**
+     * Constructor
+     *
+     * @param kind
+     *            of selector
+     * @param value
+     *            of the selector
+     */
+    private JsSelector(String kind, String value) {
+        this.kind = kind;
+        this.value = value;
+    }
+
+    /**
+     * Translates a selector, using the text of {@link By#toString()} (e.g.
+     * "By.id: name").
+     *
+     * @param selector
+     *            By element
+     * @return the translated selector or null if it can't be resolved in the
+     *         browser (e.g. chained selectors)
+     */
+    public static JsSelector of(By selector) {
+        String text = selector.toString();
+        int separator = text.indexOf(": ");
+        if (!text.startsWith("By.") || separator < 0) {
+            return null;
+        }
+        String type = text.substring("By.".length(), separator);
+        String value = text.substring(separator + 2);
+
+        if (type.equals("cssSelector")) {
+            return new JsSelector("css", value);
+        } else if (type.equals("id") || type.equals("name") || type.equals("className") || type.equals("tagName")
+                || type.equals("xpath") || type.equals("linkText") || type.equals("partialLinkText")) {
+            return new JsSelector(type, value);
+        }
+        return null;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,166 @@
+package com.emergya.selenium.drivers;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * Wait for the network quiescence of the page. XMLHttpRequest and fetch are
+ * instrumented in the page to count the requests in flight, and the wait
+ * finishes when there are no more than the allowed requests in flight during
+ * the quiet period. The requests started by an action are counted if the page
+ * is armed with {@link #armNetworkTracking(EmergyaWebDriver)} before the
+ * action. Otherwise the page is instrumented by the wait itself, and just the
+ * jQuery requests in flight and the loading of the document are taken into
+ * account for the requests started before.
+ */
+public class NetworkIdleWait {
+
+    private static Logger log = Logger.getLogger(NetworkIdleWait.class);
+
+    /**
+     * Extra time of the script timeout over the wait timeout, in milliseconds.
+     */
+    private static final long SCRIPT_TIMEOUT_MARGIN = 5000;
+
+    /**
+     * Interval of the checks inside the page, in milliseconds.
+     */
+    private static final long CHECK_INTERVAL = 25;
+
+    /**
+     * Pause before waiting again in a new page, in milliseconds.
+     */
+    private static final long UNLOAD_BACKOFF = 100;
+
+    /**
+     * Instrumentation of XMLHttpRequest and fetch, done once per page. It
+     * leaves the counter in the net variable.
+     */
+    private static final String INSTRUMENT_SCRIPT = " var net = window.__emergyaNetwork;"
+            + " if (!net) { net = window.__emergyaNetwork = {inflight: 0, last: Date.now()};"
+            + " var start = function () { net.inflight++; net.last = Date.now(); };"
+            + " var end = function () { net.inflight = Math.max(0, net.inflight - 1); net.last = Date.now(); };"
+            + " var send = XMLHttpRequest.prototype.send;"
+            + " XMLHttpRequest.prototype.send = function () { var done = false;"
+            + " var finish = function () { if (!done) { done = true; end(); } };"
+            + " this.addEventListener('loadend', finish); start();"
+            + " try { return send.apply(this, arguments); } catch (e) { finish(); throw e; } };"
+            + " if (window.fetch) { var fetch = window.fetch;"
+            + " window.fetch = function () { start();"
+            + " return fetch.apply(this, arguments).then(function (response) { end(); return response; },"
+            + " function (error) { end(); throw error; }); }; } }";
+
+    /**
+     * Script to instrument the page before an action.
+     */
+    private static final String ARM_SCRIPT = INSTRUMENT_SCRIPT + " return true;";
+
+    /**
+     * Wait script. Arguments: max requests in flight, quiet milliseconds,
+     * timeout in milliseconds and check interval. It instruments the page if
+     * it wasn't armed and returns true when the network is idle or false on
+     * timeout. The jQuery requests and the loading of the document count as
+     * requests in flight too, since they could have been started before the
+     * instrumentation.
+     */
+    private static final String WAIT_SCRIPT = "var maxInflight = arguments[0], quiet = arguments[1],"
+            + " timeout = arguments[2], interval = arguments[3], callback = arguments[arguments.length - 1];"
+            + INSTRUMENT_SCRIPT
+            + " var pending = function () { var count = net.inflight;"
+            + " if (window.jQuery && window.jQuery.active > count) { count = window.jQuery.active; }"
+            + " if (document.readyState !== 'complete') { count++; }"
+            + " return count; };"
+            + " var limit = Date.now() + timeout;"
+            + " var check = function () { var now = Date.now(), count = pending();"
+            // activity not seen by the instrumentation
+            + " if (count > net.inflight) { net.last = now; }"
+            + " if (count <= maxInflight && now - net.last >= quiet) { callback(true); }"
+            + " else if (now >= limit) { callback(false); }"
+            + " else { setTimeout(check, interval); } };"
+            + " check();";
+
+    /**
+     * Private constructor, just static methods.
+     */
+    private NetworkIdleWait() {
+    }
+
+    /**
+     * Instruments the page to count the requests in flight. It must be called
+     * before the action whose requests are waited for, e.g. before the click,
+     * and again after a navigation.
+     *
+     * @param driver
+     *            WebDriver element
+     */
+    public static void armNetworkTracking(EmergyaWebDriver driver) {
+        ((JavascriptExecutor) driver).executeScript(ARM_SCRIPT);
+    }
+
+    /**
+     * Waits until there are no more than maxInflight requests in flight during
+     * quietMillis milliseconds. If the page is reloaded during the wait, the
+     * new page is instrumented and the wait continues with the remaining time.
+     *
+     * @param driver
+     *            WebDriver element
+     * @param maxInflight
+     *            requests allowed in flight (e.g. long polling connections)
+     * @param quietMillis
+     *            milliseconds without network activity
+     * @param timeout
+     *            in milliseconds
+     * @return true if the network became idle before the timeout
+     * @throws WebDriverException
+     *             if the wait fails for other reason than a page unload
+     *             (script error, dead session...)
+     */
+    public static boolean waitForNetworkIdle(EmergyaWebDriver driver, int maxInflight, long quietMillis,
+            long timeout) {
+        long end = System.currentTimeMillis() + timeout;
+        long remaining = timeout;
+
+        do {
+            ObserverWaits.ensureScriptTimeout(driver, remaining + SCRIPT_TIMEOUT_MARGIN);
+            try {
+                Object idle = ((JavascriptExecutor) driver).executeAsyncScript(WAIT_SCRIPT, maxInflight,
+                        quietMillis, remaining, CHECK_INTERVAL);
+                return Boolean.TRUE.equals(idle);
+            } catch (TimeoutException e) {
+                log.warn("The network wait script timed out: " + e.getMessage());
+                return false;
+            } catch (WebDriverException e) {
+                if (!isPageUnload(e)) {
+                    throw e;
+                }
+                log.info("The page was unloaded during the network wait, trying again");
+            }
+
+            // the new page could be still loading
+            try {
+                Thread.sleep(Math.max(0, Math.min(UNLOAD_BACKOFF, end - System.currentTimeMillis())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            remaining = end - System.currentTimeMillis();
+        } while (remaining > 0);
+
+        return false;
+    }
+
+    /**
+     * Checks if an asynchronous script failed because the page was unloaded.
+     * The browsers don't use a specific exception for it, just the message.
+     *
+     * @param e
+     *            exception of the script
+     * @return true if the page was unloaded or reloaded
+     */
+    private static boolean isPageUnload(WebDriverException e) {
+        String message = e.getMessage() == null ? "" : e.getMessage().toLowerCase();
+        return message.contains("unload") || message.contains("reload");
+    }
+}
@@ -0,0 +1,190 @@
+package com.emergya.selenium.drivers;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * Waits resolved inside the browser. A MutationObserver is injected with an
+ * asynchronous script and the condition is checked on every change of the DOM,
+ * so the wait costs one round trip and finishes a few milliseconds after the
+ * condition is satisfied, instead of waiting for the next poll.
+ */
+public class ObserverWaits {
+
+    /**
+     * Element is in the DOM.
+     */
+    public static final String PRESENT = "present";
+
+    /**
+     * Element is displayed.
+     */
+    public static final String VISIBLE = "visible";
+
+    /**
+     * Element is displayed and enabled.
+     */
+    public static final String CLICKABLE = "clickable";
+
+    /**
+     * Element contains a text.
+     */
+    public static final String TEXT = "text";
+
+    /**
+     * Element is not in the DOM.
+     */
+    public static final String ABSENT = "absent";
+
+    /**
+     * Element is not displayed or not in the DOM.
+     */
+    public static final String INVISIBLE = "invisible";
+
+    /**
+     * Extra time of the script timeout over the wait timeout, in milliseconds.
+     */
+    private static final long SCRIPT_TIMEOUT_MARGIN = 5000;
+
+    /**
+     * Interval of the checks when no mutation happens (e.g. CSS transitions),
+     * in milliseconds.
+     */
+    private static final long FALLBACK_INTERVAL = 250;
+
+    /**
+     * Wait script. Arguments: selector kind, selector value, condition, text,
+     * timeout in milliseconds and fallback interval. It returns the element
+     * (present, visible, clickable, text), true (absent, invisible), null on
+     * timeout or an object with the error.
+     */
+    private static final String WAIT_SCRIPT = "var kind = arguments[0], value = arguments[1],"
+            + " condition = arguments[2], text = arguments[3], timeout = arguments[4],"
+            + " interval = arguments[5], callback = arguments[arguments.length - 1];"
+            + JsSelector.FUNCTIONS
+            + " function check() { var element = emergyaFind(kind, value);"
+            + " switch (condition) {"
+            + " case 'present': return element;"
+            + " case 'visible': return emergyaVisible(element) ? element : null;"
+            + " case 'clickable': return emergyaVisible(element) && !element.disabled ? element : null;"
+            + " case 'text': return emergyaText(element).indexOf(text) >= 0 ? element : null;"
+            + " case 'absent': return element ? null : true;"
+            + " case 'invisible': return emergyaVisible(element) ? null : true; }"
+            + " return null; }"
+            + " var finished = false, observer = null, timer = null, fallback = null;"
+            + " function finish(result) { if (finished) { return; } finished = true;"
+            + " if (observer) { observer.disconnect(); } clearTimeout(timer); clearInterval(fallback);"
+            + " callback(result); }"
+            + " function evaluate() { try { var result = check(); if (result) { finish(result); } }"
+            + " catch (e) { finish({error: String(e)}); } }"
+            + " evaluate();"
+            + " if (!finished) {"
+            + " observer = new MutationObserver(evaluate);"
+            + " observer.observe(document.documentElement || document,"
+            + " {childList: true, subtree: true, attributes: true, characterData: true});"
+            + " fallback = setInterval(evaluate, interval);"
+            + " timer = setTimeout(function () { finish(null); }, timeout); }";
+
+    /**
+     * Script timeout set in each driver, to set it just when a longer one is
+     * needed. The framework sets the script timeout just with
+     * {@link #setScriptTimeout(WebDriver, long)}, so it's always known.
+     */
+    private static final Map<WebDriver, Long> scriptTimeouts = Collections
+            .synchronizedMap(new WeakHashMap<WebDriver, Long>());
+
+    /**
+     * Private constructor, just static methods.
+     */
+    private ObserverWaits() {
+    }
+
+    /**
+     * Checks if a selector can be resolved in the browser.
+     *
+     * @param selector
+     *            By element
+     * @return true if it can be used with
+     *         {@link #waitInBrowser(EmergyaWebDriver, By, String, String, long)}
+     */
+    public static boolean supports(By selector) {
+        return JsSelector.of(selector) != null;
+    }
+
+    /**
+     * Waits in the browser until a condition of the selector is satisfied.
+     *
+     * @param driver
+     *            WebDriver element
+     * @param selector
+     *            By element, supported by {@link #supports(By)}
+     * @param condition
+     *            {@link #PRESENT}, {@link #VISIBLE}, {@link #CLICKABLE},
+     *            {@link #TEXT}, {@link #ABSENT} or {@link #INVISIBLE}
+     * @param text
+     *            to be found with {@link #TEXT}, null for the other conditions
+     * @param timeout
+     *            in milliseconds
+     * @return the element (or true for {@link #ABSENT} and {@link #INVISIBLE})
+     *         or null if the time expired
+     * @throws WebDriverException
+     *             if the wait can't be done in the browser (unsupported
+     *             selector, navigation during the wait, script error...), so
+     *             the caller can fall back to polling
+     */
+    public static Object waitInBrowser(EmergyaWebDriver driver, By selector, String condition, String text,
+            long timeout) {
+        JsSelector jsSelector = JsSelector.of(selector);
+        if (jsSelector == null) {
+            throw new WebDriverException("The selector can't be resolved in the browser: " + selector);
+        }
+
+        ensureScriptTimeout(driver, timeout + SCRIPT_TIMEOUT_MARGIN);
+
+        Object result = ((JavascriptExecutor) driver).executeAsyncScript(WAIT_SCRIPT, jsSelector.getKind(),
+                jsSelector.getValue(), condition, text, timeout, FALLBACK_INTERVAL);
+
+        if (result instanceof Map) {
+            throw new WebDriverException("The wait script failed: " + ((Map<?, ?>) result).get("error"));
+        }
+        return result;
+    }
+
+    /**
+     * Sets the script timeout of the driver if it's shorter than the needed
+     * one.
+     *
+     * @param driver
+     *            WebDriver element
+     * @param timeout
+     *            needed, in milliseconds
+     */
+    static void ensureScriptTimeout(WebDriver driver, long timeout) {
+        Long current = scriptTimeouts.get(driver);
+        if (current == null || current < timeout) {
+            setScriptTimeout(driver, timeout);
+        }
+    }
+
+    /**
+     * Sets the script timeout of the driver, keeping it for
+     * {@link #ensureScriptTimeout(WebDriver, long)}. Any other code setting
+     * the script timeout of a driver must use this method.
+     *
+     * @param driver
+     *            WebDriver element
+     * @param timeout
+     *            in milliseconds
+     */
+    public static void setScriptTimeout(WebDriver driver, long timeout) {
+        driver.manage().timeouts().setScriptTimeout(timeout, TimeUnit.MILLISECONDS);
+        scriptTimeouts.put(driver, timeout);
+    }
+}
@@ -0,0 +1,143 @@
+package com.emergya.selenium.drivers;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * Chooses the remote server (hub or standalone server) of each new session.
+ * Two strategies are supported: round robin, and least loaded, which chooses
+ * the server with fewer active sessions started by this JVM.
+ */
+public class RemoteNodeSelector {
+
+    /**
+     * Round robin strategy name.
+     */
+    public static final String ROUND_ROBIN = "roundRobin";
+
+    /**
+     * Least loaded strategy name.
+     */
+    public static final String LEAST_LOADED = "leastLoaded";
+
+    /**
+     * Remote servers, in the configured order.
+     */
+    private final List<URL> nodes;
+
+    /**
+     * Active sessions of each remote server.
+     */
+    private final Map<URL, AtomicInteger> activeSessions = new ConcurrentHashMap<URL, AtomicInteger>();
+
+    /**
+     * True to choose the least loaded server, false for round robin.
+     */
+    private final boolean leastLoaded;
+
+    /**
+     * Next server for the round robin strategy.
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param nodeUrls
+     *            comma separated list of remote server URLs
+     * @param strategy
+     *            {@link #ROUND_ROBIN} or {@link #LEAST_LOADED}
+     */
+    public RemoteNodeSelector(String nodeUrls, String strategy) {
+        List<URL> urls = new ArrayList<URL>();
+        for (String nodeUrl : StringUtils.split(StringUtils.defaultString(nodeUrls), ',')) {
+            if (StringUtils.isNotBlank(nodeUrl)) {
+                try {
+                    URL url = new URL(nodeUrl.trim());
+                    urls.add(url);
+                    activeSessions.put(url, new AtomicInteger());
+                } catch (MalformedURLException e) {
+                    throw new WebDriverException("Malformed remote server URL: " + nodeUrl, e);
+                }
+            }
+        }
+        if (urls.isEmpty()) {
+            throw new WebDriverException("No remote server URL configured");
+        }
+        this.nodes = Collections.unmodifiableList(urls);
+        this.leastLoaded = LEAST_LOADED.equalsIgnoreCase(StringUtils.trim(strategy));
+    }
+
+    /**
+     * Chooses the server of a new session and counts the session as active.
+     * {@link #release(URL)} must be called when the session finishes or fails
+     * to start.
+     *
+     * @return the chosen server
+     */
+    public URL acquire() {
+        URL node;
+        if (leastLoaded) {
+            // ties are resolved starting at a rotating position, so the
+            // servers are filled evenly
+            int start = Math.abs(next.getAndIncrement() % nodes.size());
+            node = null;
+            int lowest = Integer.MAX_VALUE;
+            for (int i = 0; i < nodes.size(); i++) {
+                URL candidate = nodes.get((start + i) % nodes.size());
+                int sessions = activeSessions.get(candidate).get();
+                if (sessions < lowest) {
+                    lowest = sessions;
+                    node = candidate;
+                }
+            }
+        } else {
+            node = nodes.get(Math.abs(next.getAndIncrement() % nodes.size()));
+        }
+        activeSessions.get(node).incrementAndGet();
+        return node;
+    }
+
+    /**
+     * Counts a session of the server as finished.
+     *
+     * @param node
+     *            previously returned by {@link #acquire()}
+     */
+    public void release(URL node) {
+        AtomicInteger sessions = node == null ? null : activeSessions.get(node);
+        if (sessions != null) {
+            sessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of active sessions of a server.
+     *
+     * @param node
+     *            remote server
+     * @return active sessions started by this JVM
+     */
+    public int getActiveSessions(URL node) {
+        AtomicInteger sessions = activeSessions.get(node);
+        return sessions == null ? 0 : sessions.get();
+    }
+
+    /**
+     * Returns the configured servers.
+     *
+     * @return unmodifiable list of servers
+     */
+    public List<URL> getNodes() {
+        return nodes;
+    }
+}
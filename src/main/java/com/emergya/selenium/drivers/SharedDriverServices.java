@@ -0,0 +1,120 @@
+package com.emergya.selenium.drivers;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.ie.InternetExplorerDriverService;
+import org.openqa.selenium.remote.service.DriverService;
+
+/**
+ * Long-lived chromedriver and IEDriverServer processes. Each worker thread
+ * starts its own service once and creates all its sessions against it, instead
+ * of launching a new process (and binding a new port) for every driver.
+ */
+public class SharedDriverServices {
+
+    private static Logger log = Logger.getLogger(SharedDriverServices.class);
+
+    /**
+     * Chrome service of each thread.
+     */
+    private static final ThreadLocal<ChromeDriverService> chromeService = new ThreadLocal<ChromeDriverService>();
+
+    /**
+     * IE service of each thread.
+     */
+    private static final ThreadLocal<InternetExplorerDriverService> ieService = new ThreadLocal<InternetExplorerDriverService>();
+
+    /**
+     * All the started services, to stop them at the end.
+     */
+    private static final List<DriverService> services = new CopyOnWriteArrayList<DriverService>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                stopAll();
+            }
+        }, "driver-services-shutdown"));
+    }
+
+    /**
+     * Private constructor, just static methods.
+     */
+    private SharedDriverServices() {
+    }
+
+    /**
+     * Returns the chromedriver service of the current thread, starting it the
+     * first time.
+     *
+     * @param executable
+     *            chromedriver executable
+     * @return the running service
+     */
+    public static ChromeDriverService getChromeDriverService(File executable) {
+        ChromeDriverService service = chromeService.get();
+        if (service == null || !service.isRunning()) {
+            service = new ChromeDriverService.Builder().usingDriverExecutable(executable).usingAnyFreePort()
+                    .build();
+            start(service);
+            chromeService.set(service);
+        }
+        return service;
+    }
+
+    /**
+     * Returns the IEDriverServer service of the current thread, starting it
+     * the first time.
+     *
+     * @param executable
+     *            IEDriverServer executable
+     * @return the running service
+     */
+    public static InternetExplorerDriverService getInternetExplorerDriverService(File executable) {
+        InternetExplorerDriverService service = ieService.get();
+        if (service == null || !service.isRunning()) {
+            service = new InternetExplorerDriverService.Builder().usingDriverExecutable(executable)
+                    .usingAnyFreePort().build();
+            start(service);
+            ieService.set(service);
+        }
+        return service;
+    }
+
+    /**
+     * Stops all the started services.
+     */
+    public static void stopAll() {
+        for (DriverService service : services) {
+            try {
+                service.stop();
+            } catch (RuntimeException e) {
+                log.warn("Error stopping the driver service " + service.getUrl() + ": " + e.toString());
+            }
+        }
+        services.clear();
+    }
+
+    /**
+     * Starts a service and registers it to be stopped at the end.
+     *
+     * @param service
+     *            to be started
+     */
+    private static void start(DriverService service) {
+        try {
+            service.start();
+        } catch (IOException e) {
+            throw new WebDriverException("The driver service couldn't be started", e);
+        }
+        services.add(service);
+        log.info("Driver service started at " + service.getUrl());
+    }
+}
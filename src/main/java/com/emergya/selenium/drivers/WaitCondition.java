@@ -0,0 +1,370 @@
+package com.emergya.selenium.drivers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Composable condition of a wait. The conditions of several elements
+ * (presence, visibility, clickability, text and count) are combined with
+ * {@link #allOf(WaitCondition...)}, {@link #anyOf(WaitCondition...)} and
+ * {@link #not(WaitCondition)}, and the whole tree is checked in each tick of
+ * one polling loop by
+ * {@link EmergyaWebDriverUtil#waitUntil(EmergyaWebDriver, WaitCondition, long)}.
+ * When all the selectors can be resolved in the browser, the tree is checked
+ * with one script execution per tick.
+ *
+ * <pre>
+ * driver.waitUntil(WaitCondition.allOf(WaitCondition.visible(form),
+ *         WaitCondition.not(WaitCondition.visible(spinner)),
+ *         WaitCondition.count(rows, 10)), 20);
+ * </pre>
+ */
+public abstract class WaitCondition {
+
+    /**
+     * Types of the count and composite conditions, the element ones are the
+     * {@link ObserverWaits} conditions.
+     */
+    private static final String COUNT = "count";
+    private static final String ALL = "all";
+    private static final String ANY = "any";
+    private static final String NOT = "not";
+
+    /**
+     * Script to check a condition tree. Argument: the tree, as returned by
+     * {@link #toScript()}. It returns true if the condition is satisfied.
+     */
+    static final String CHECK_SCRIPT = JsSelector.FUNCTIONS
+            + " function emergyaCount(kind, value) {"
+            + " switch (kind) {"
+            + " case 'id': return document.getElementById(value) ? 1 : 0;"
+            + " case 'name': return document.getElementsByName(value).length;"
+            + " case 'css': return document.querySelectorAll(value).length;"
+            + " case 'className': return document.getElementsByClassName(value).length;"
+            + " case 'tagName': return document.getElementsByTagName(value).length;"
+            + " case 'xpath': return document.evaluate(value, document, null,"
+            + " XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null).snapshotLength;"
+            + " case 'linkText': case 'partialLinkText': var count = 0, links = document.getElementsByTagName('a');"
+            + " for (var i = 0; i < links.length; i++) { var text = (links[i].textContent || '').trim();"
+            + " if (kind === 'linkText' ? text === value : text.indexOf(value) >= 0) { count++; } }"
+            + " return count; }"
+            + " return 0; }"
+            + " function emergyaCheck(node) { var i;"
+            + " switch (node[0]) {"
+            + " case 'all': for (i = 1; i < node.length; i++) { if (!emergyaCheck(node[i])) { return false; } }"
+            + " return true;"
+            + " case 'any': for (i = 1; i < node.length; i++) { if (emergyaCheck(node[i])) { return true; } }"
+            + " return false;"
+            + " case 'not': return !emergyaCheck(node[1]);"
+            + " case 'count': var count = emergyaCount(node[1], node[2]);"
+            + " return count >= node[3] && (node[4] < 0 || count <= node[4]); }"
+            + " var element = emergyaFind(node[1], node[2]);"
+            + " switch (node[0]) {"
+            + " case 'present': return !!element;"
+            + " case 'visible': return emergyaVisible(element);"
+            + " case 'clickable': return emergyaVisible(element) && !element.disabled;"
+            + " case 'text': return emergyaText(element).indexOf(node[3]) >= 0; }"
+            + " return false; }"
+            + " return emergyaCheck(arguments[0]);";
+
+    // **** Factory methods section ****//
+    /**
+     * The element exists in the DOM.
+     *
+     * @param selector
+     *            By element
+     * @return the condition
+     */
+    public static WaitCondition present(By selector) {
+        return new ElementCondition(ObserverWaits.PRESENT, selector, null, 0, 0);
+    }
+
+    /**
+     * The element is displayed.
+     *
+     * @param selector
+     *            By element
+     * @return the condition
+     */
+    public static WaitCondition visible(By selector) {
+        return new ElementCondition(ObserverWaits.VISIBLE, selector, null, 0, 0);
+    }
+
+    /**
+     * The element is displayed and enabled.
+     *
+     * @param selector
+     *            By element
+     * @return the condition
+     */
+    public static WaitCondition clickable(By selector) {
+        return new ElementCondition(ObserverWaits.CLICKABLE, selector, null, 0, 0);
+    }
+
+    /**
+     * The visible text of the element contains a text, as returned by
+     * WebElement.getText() in both the script and the WebDriver checks.
+     *
+     * @param selector
+     *            By element
+     * @param text
+     *            to be found
+     * @return the condition
+     */
+    public static WaitCondition text(By selector, String text) {
+        return new ElementCondition(ObserverWaits.TEXT, selector, text, 0, 0);
+    }
+
+    /**
+     * The selector matches exactly a number of elements.
+     *
+     * @param selector
+     *            By element
+     * @param count
+     *            of elements
+     * @return the condition
+     */
+    public static WaitCondition count(By selector, int count) {
+        return new ElementCondition(COUNT, selector, null, count, count);
+    }
+
+    /**
+     * The selector matches at least a number of elements.
+     *
+     * @param selector
+     *            By element
+     * @param minimum
+     *            of elements
+     * @return the condition
+     */
+    public static WaitCondition countAtLeast(By selector, int minimum) {
+        return new ElementCondition(COUNT, selector, null, minimum, -1);
+    }
+
+    /**
+     * All the conditions are satisfied at the same time.
+     *
+     * @param conditions
+     *            to be combined
+     * @return the condition
+     */
+    public static WaitCondition allOf(WaitCondition... conditions) {
+        return new CompositeCondition(ALL, Arrays.asList(conditions));
+    }
+
+    /**
+     * At least one of the conditions is satisfied.
+     *
+     * @param conditions
+     *            to be combined
+     * @return the condition
+     */
+    public static WaitCondition anyOf(WaitCondition... conditions) {
+        return new CompositeCondition(ANY, Arrays.asList(conditions));
+    }
+
+    /**
+     * The condition is not satisfied (e.g. not(visible(spinner))).
+     *
+     * @param condition
+     *            to be negated
+     * @return the condition
+     */
+    public static WaitCondition not(WaitCondition condition) {
+        return new CompositeCondition(NOT, Arrays.asList(condition));
+    }
+
+    // **** Evaluation section ****//
+    /**
+     * Checks the condition with WebDriver calls. Each selector is looked for
+     * once per check, even if it's used by several conditions.
+     *
+     * @param driver
+     *            WebDriver element
+     * @return true if the condition is satisfied
+     */
+    public boolean isSatisfied(WebDriver driver) {
+        try {
+            return check(driver, new HashMap<By, List<WebElement>>());
+        } catch (StaleElementReferenceException e) {
+            // the page changed during the check, next tick
+            return false;
+        }
+    }
+
+    /**
+     * Checks the condition.
+     *
+     * @param driver
+     *            WebDriver element
+     * @param found
+     *            elements of the selectors already looked for in this check
+     * @return true if the condition is satisfied
+     */
+    abstract boolean check(WebDriver driver, Map<By, List<WebElement>> found);
+
+    /**
+     * Translates the condition to the argument of {@link #CHECK_SCRIPT}.
+     *
+     * @return nested lists with the condition, or null if a selector can't be
+     *         resolved in the browser
+     */
+    abstract List<Object> toScript();
+
+    // **** Conditions section ****//
+    /**
+     * Condition of the elements of a selector.
+     */
+    private static class ElementCondition extends WaitCondition {
+
+        private final String type;
+        private final By selector;
+        private final String text;
+        private final int minimum;
+        private final int maximum;
+
+        /**
+         * Constructor
+         *
+         * @param type
+         *            of condition
+         * @param selector
+         *            By element
+         * @param text
+         *            of the text condition, otherwise null
+         * @param minimum
+         *            elements of the count condition
+         * @param maximum
+         *            elements of the count condition, -1 for no limit
+         */
+        ElementCondition(String type, By selector, String text, int minimum, int maximum) {
+            this.type = type;
+            this.selector = selector;
+            this.text = text;
+            this.minimum = minimum;
+            this.maximum = maximum;
+        }
+
+        @Override
+        boolean check(WebDriver driver, Map<By, List<WebElement>> found) {
+            List<WebElement> elements = found.get(selector);
+            if (elements == null) {
+                elements = driver.findElements(selector);
+                found.put(selector, elements);
+            }
+
+            if (type.equals(COUNT)) {
+                return elements.size() >= minimum && (maximum < 0 || elements.size() <= maximum);
+            }
+            if (elements.isEmpty()) {
+                return false;
+            }
+
+            WebElement element = elements.get(0);
+            if (type.equals(ObserverWaits.VISIBLE)) {
+                return element.isDisplayed();
+            } else if (type.equals(ObserverWaits.CLICKABLE)) {
+                return element.isDisplayed() && element.isEnabled();
+            } else if (type.equals(ObserverWaits.TEXT)) {
+                return element.getText().contains(text);
+            }
+            return true;
+        }
+
+        @Override
+        List<Object> toScript() {
+            JsSelector jsSelector = JsSelector.of(selector);
+            if (jsSelector == null) {
+                return null;
+            }
+
+            List<Object> node = new ArrayList<Object>();
+            node.add(type);
+            node.add(jsSelector.getKind());
+            node.add(jsSelector.getValue());
+            if (type.equals(ObserverWaits.TEXT)) {
+                node.add(text);
+            } else if (type.equals(COUNT)) {
+                node.add(minimum);
+                node.add(maximum);
+            }
+            return node;
+        }
+
+        @Override
+        public String toString() {
+            if (type.equals(COUNT)) {
+                return type + "[" + minimum + "," + (maximum < 0 ? "" : maximum) + "](" + selector + ")";
+            }
+            return type + (text != null ? "=" + text : "") + "(" + selector + ")";
+        }
+    }
+
+    /**
+     * Combination of conditions.
+     */
+    private static class CompositeCondition extends WaitCondition {
+
+        private final String type;
+        private final List<WaitCondition> conditions;
+
+        /**
+         * Constructor
+         *
+         * @param type
+         *            all, any or not
+         * @param conditions
+         *            to be combined
+         */
+        CompositeCondition(String type, List<WaitCondition> conditions) {
+            this.type = type;
+            this.conditions = conditions;
+        }
+
+        @Override
+        boolean check(WebDriver driver, Map<By, List<WebElement>> found) {
+            if (type.equals(NOT)) {
+                return !conditions.get(0).check(driver, found);
+            }
+
+            boolean any = type.equals(ANY);
+            for (WaitCondition condition : conditions) {
+                if (condition.check(driver, found) == any) {
+                    return any;
+                }
+            }
+            return !any;
+        }
+
+        @Override
+        List<Object> toScript() {
+            List<Object> node = new ArrayList<Object>();
+            node.add(type);
+            for (WaitCondition condition : conditions) {
+                List<Object> child = condition.toScript();
+                if (child == null) {
+                    return null;
+                }
+                node.add(child);
+            }
+            return node;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(type).append("(");
+            for (int i = 0; i < conditions.size(); i++) {
+                text.append(i > 0 ? ", " : "").append(conditions.get(i));
+            }
+            return text.append(")").toString();
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package com.emergya.selenium.pageObject;
 
 import java.io.File;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.openqa.selenium.By;
 import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 
 import com.emergya.selenium.drivers.EmergyaWebDriver;
+import com.emergya.selenium.drivers.JsSelector;
+import com.emergya.selenium.drivers.ObserverWaits;
+import com.emergya.selenium.utils.Deadline;
 import com.emergya.selenium.utils.Initialization;
+import com.emergya.selenium.utils.Poller;
 import com.emergya.selenium.utils.PropertiesHandler;
 
 /**
@@ -33,13 +43,37 @@ public abstract class BasePageObject {
     public BasePageObject(EmergyaWebDriver driver) {
         this.driver = driver;
         this.className = getClass().getSimpleName();
+
+        EmergyaWebDriver threadDriver = config.getDriver();
+        if (driver != null && threadDriver != null && driver != threadDriver) {
+            // e.g. the static driver of the test set read by a parallel test
+            log.warn(className + " built with the driver of another thread, use the driver of the current test");
+        }
     }
 
     /**
-     * TIMEOUT for elements.
+     * TIMEOUT for elements. With autoTimeouts it's just the default of the keys without enough recorded waits, see
+     * {@link #getTimeout(String)}.
      */
     protected static final long TIMEOUT = 20; // Seconds
 
+    /**
+     * Consecutive failures of the batch check script after which the elements are checked with WebDriver calls.
+     */
+    private static final int MAX_SCRIPT_FAILURES = 3;
+
+    /**
+     * Script to check several selectors at once. Arguments: list of [kind, value] selectors and condition (visible
+     * or present). It returns a list of booleans.
+     */
+    private static final String BATCH_CHECK_SCRIPT = JsSelector.FUNCTIONS
+            + " var selectors = arguments[0], condition = arguments[1], result = [];"
+            + " for (var i = 0; i < selectors.length; i++) {"
+            + " try { var element = emergyaFind(selectors[i][0], selectors[i][1]);"
+            + " result.push(condition === 'visible' ? emergyaVisible(element) : element !== null); }"
+            + " catch (e) { result.push(false); } }"
+            + " return result;";
+
     /**
      * This method builds the file selector path for each Page Object:
      * @param key to be retrieved.
@@ -78,12 +112,32 @@ public abstract class BasePageObject {
      */
     private boolean existsKey(String file, String key) {
         boolean exists = false;
-        PropertiesHandler handler = PropertiesHandler.getInstance();
-        handler.load(file);
-        exists = StringUtils.isNotBlank(handler.get(key));
+        exists = StringUtils.isNotBlank(PropertiesHandler.getInstance().get(file, key));
         return exists;
     }
 
+    /**
+     * Starts a time budget for a page object action: all the waits until it's closed share it, so an action
+     * chaining several getElementBy*(key) calls fails within timeOut seconds instead of N x TIMEOUT.
+     * 
+     * @param timeOut total time of the action.
+     * @return the deadline, to be closed at the end of the action (try-with-resources).
+     */
+    protected Deadline startDeadline(long timeOut) {
+        return Deadline.start(timeOut, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the default timeout of a key: TIMEOUT, or with autoTimeouts the one derived from the recorded waits
+     * of the key in this PO (p99 x autoTimeoutFactor, between autoTimeoutMin and autoTimeoutMax).
+     * 
+     * @param key of the item.
+     * @return the timeout in seconds.
+     */
+    protected long getTimeout(String key) {
+        return config.getWaitTimeouts().getTimeout(this.className + "." + key, TIMEOUT);
+    }
+
     /**
      * Checks that the PO is ready
      * 
@@ -103,9 +157,10 @@ public abstract class BasePageObject {
     public WebElement getElementById(String key, long timeOut) {
         WebElement element = null;
         PropertiesHandler handler = PropertiesHandler.getInstance();
-        handler.load(this.getSelectorsFilePath(key + ".id"));
-        String type = handler.get(key + ".type"); // Could be null
-        String id = handler.get(key + ".id"); // getElementByIdJustId
+        String file = this.getSelectorsFilePath(key + ".id");
+        String type = handler.get(file, key + ".type"); // Could be null
+        String id = handler.get(file, key + ".id"); // getElementByIdJustId
+        long start = System.currentTimeMillis();
 
         if (type == null && StringUtils.isNotBlank(id)) {
             element = this.getElementByIdJustId(id, timeOut);
@@ -113,23 +168,26 @@ public abstract class BasePageObject {
             if (StringUtils.isNotBlank(type) && StringUtils.isNotBlank(id)) {
                 element = this.getElementById(type, id, timeOut);
             } else {
-                log.error("Trying to retrieve from " + this.getSelectorsFilePath(key + ".id")
+                log.error("Trying to retrieve from " + file
                         + " file the item with the key " + key + " but " + key + ".type and/or " + key
                         + ".id are missing!");
             }
         }
+        if (element != null) {
+            this.recordWait(key, start);
+        }
         return element;
     }
 
     /**
      * This method interacts with Selenium to retrieve the needed element. By ID
-     * This method uses the TIMEOUT constant.
+     * This method uses the timeout of the key, see {@link #getTimeout(String)}.
      * 
      * @param key of the item to be selected. In the related selector file should exists an entry with: key.type and key.id
      * @return the selected {@link Webelement} object
      */
     public WebElement getElementById(String key) {
-        return this.getElementById(key, TIMEOUT);
+        return this.getElementById(key, this.getTimeout(key));
     }
 
     /**
@@ -150,13 +208,36 @@ public abstract class BasePageObject {
 
     /**
      * This method checks if a {@link WebElement} is displayed and visible for selenium. By ID
-     * This method uses the TIMEOUT constant.
+     * This method uses the timeout of the key, see {@link #getTimeout(String)}.
      * 
      * @param key of the item to be selected. In the related selector file should exists an entry with: key.type and key.id
      * @return true if the element exists and it's visible.
      */
     public boolean isElementVisibleById(String key) {
-        return this.isElementVisibleById(key, TIMEOUT);
+        return this.isElementVisibleById(key, this.getTimeout(key));
+    }
+
+    /**
+     * This method checks that a {@link WebElement} is not displayed. By ID
+     * It doesn't wait for the element to appear: it returns as soon as the element is hidden or missing, so it's
+     * meant for "should not be shown" assertions.
+     * 
+     * @param key of the item to be checked. In the related selector file should exists an entry with: key.type and key.id
+     * @param timeOut limit for wait until disappear, 0 to check it just once.
+     * @return true if the element is hidden or missing in the DOM.
+     */
+    public boolean isElementNotVisibleById(String key, long timeOut) {
+        return this.isNotVisible(key, this.getIdSelector(key), timeOut);
+    }
+
+    /**
+     * This method checks right now that a {@link WebElement} is not displayed. By ID
+     * 
+     * @param key of the item to be checked. In the related selector file should exists an entry with: key.type and key.id
+     * @return true if the element is hidden or missing in the DOM.
+     */
+    public boolean isElementNotVisibleById(String key) {
+        return this.isElementNotVisibleById(key, 0);
     }
 
     // **** Name methods section ****//
@@ -170,9 +251,10 @@ public abstract class BasePageObject {
     public WebElement getElementByName(String key, long timeOut) {
         WebElement element = null;
         PropertiesHandler handler = PropertiesHandler.getInstance();
-        handler.load(this.getSelectorsFilePath(key + ".name"));
-        String type = handler.get(key + ".type"); // Could be null
-        String name = handler.get(key + ".name"); // getElementByNameJustName
+        String file = this.getSelectorsFilePath(key + ".name");
+        String type = handler.get(file, key + ".type"); // Could be null
+        String name = handler.get(file, key + ".name"); // getElementByNameJustName
+        long start = System.currentTimeMillis();
 
         if (type == null && StringUtils.isNotBlank(name)) {
             element = this.getElementByNameJustName(name, timeOut);
@@ -180,23 +262,26 @@ public abstract class BasePageObject {
             if (StringUtils.isNotBlank(type) && StringUtils.isNotBlank(name)) {
                 element = this.getElementByName(type, name, timeOut);
             } else {
-                log.error("Trying to retrieve from " + this.getSelectorsFilePath(key + ".name")
+                log.error("Trying to retrieve from " + file
                         + " file the item with the key " + key + " but " + key + ".type and/or " + key
                         + ".name are missing!");
             }
         }
+        if (element != null) {
+            this.recordWait(key, start);
+        }
         return element;
     }
 
     /**
      * This method interacts with Selenium to retrieve the needed element. By Name
-     * This method uses the TIMEOUT constant.
+     * This method uses the timeout of the key, see {@link #getTimeout(String)}.
      * 
      * @param key of the item to be selected. In the related selector file should exists an entry with: key.type and key.name
      * @return the selected {@link Webelement} object
      */
     public WebElement getElementByName(String key) {
-        return this.getElementByName(key, TIMEOUT);
+        return this.getElementByName(key, this.getTimeout(key));
     }
 
     /**
@@ -217,13 +302,36 @@ public abstract class BasePageObject {
 
     /**
      * This method checks if a {@link WebElement} is displayed and visible for selenium. By Name
-     * This method uses the TIMEOUT constant.
+     * This method uses the timeout of the key, see {@link #getTimeout(String)}.
      * 
      * @param key of the item to be selected. In the related selector file should exists an entry with: key.type and key.name
      * @return true if the element exists and it's visible.
      */
     public boolean isElementVisibleByName(String key) {
-        return this.isElementVisibleByName(key, TIMEOUT);
+        return this.isElementVisibleByName(key, this.getTimeout(key));
+    }
+
+    /**
+     * This method checks that a {@link WebElement} is not displayed. By Name
+     * It doesn't wait for the element to appear: it returns as soon as the element is hidden or missing, so it's
+     * meant for "should not be shown" assertions.
+     * 
+     * @param key of the item to be checked. In the related selector file should exists an entry with: key.type and key.name
+     * @param timeOut limit for wait until disappear, 0 to check it just once.
+     * @return true if the element is hidden or missing in the DOM.
+     */
+    public boolean isElementNotVisibleByName(String key, long timeOut) {
+        return this.isNotVisible(key, this.getNameSelector(key), timeOut);
+    }
+
+    /**
+     * This method checks right now that a {@link WebElement} is not displayed. By Name
+     * 
+     * @param key of the item to be checked. In the related selector file should exists an entry with: key.type and key.name
+     * @return true if the element is hidden or missing in the DOM.
+     */
+    public boolean isElementNotVisibleByName(String key) {
+        return this.isElementNotVisibleByName(key, 0);
     }
 
     // **** XPath methods section ****//
@@ -237,13 +345,17 @@ public abstract class BasePageObject {
     public WebElement getElementByXPath(String key, long timeOut) {
         WebElement element = null;
         PropertiesHandler handler = PropertiesHandler.getInstance();
-        handler.load(this.getSelectorsFilePath(key + ".xpath"));
-        String xpath = handler.get(key + ".xpath");
+        String file = this.getSelectorsFilePath(key + ".xpath");
+        String xpath = handler.get(file, key + ".xpath");
 
         if (StringUtils.isNotBlank(xpath)) {
+            long start = System.currentTimeMillis();
             element = this.getElementByXpath(xpath, timeOut);
+            if (element != null) {
+                this.recordWait(key, start);
+            }
         } else {
-            log.error("Trying to retrieve from " + this.getSelectorsFilePath(key + ".xpath")
+            log.error("Trying to retrieve from " + file
                     + " file the item with the key " + key + " but " + key + ".xpath is missing!");
         }
         return element;
@@ -251,13 +363,13 @@ public abstract class BasePageObject {
 
     /**
      * This method interacts with selenium to retrieve the needed element. By XPath
-     * This method uses the TIMEOUT constant.
+     * This method uses the timeout of the key, see {@link #getTimeout(String)}.
      * 
      * @param key of the item to be selected. In the related selector file should exists an entry with: key.xpath
      * @return the selected {@link WebElement} object.
      */
     public WebElement getElementByXPath(String key) {
-        return this.getElementByXPath(key, TIMEOUT);
+        return this.getElementByXPath(key, this.getTimeout(key));
     }
 
     /**
@@ -270,13 +382,17 @@ public abstract class BasePageObject {
     public List<WebElement> getElementsByXPath(String key, long timeOut) {
         List<WebElement> element = null;
         PropertiesHandler handler = PropertiesHandler.getInstance();
-        handler.load(this.getSelectorsFilePath(key + ".xpath"));
-        String xpath = handler.get(key + ".xpath");
+        String file = this.getSelectorsFilePath(key + ".xpath");
+        String xpath = handler.get(file, key + ".xpath");
 
         if (StringUtils.isNotBlank(xpath)) {
+            long start = System.currentTimeMillis();
             element = this.getElementsByXpath(xpath, timeOut);
+            if (!element.isEmpty()) {
+                this.recordWait(key, start);
+            }
         } else {
-            log.error("Trying to retrieve from " + this.getSelectorsFilePath(key + ".xpath")
+            log.error("Trying to retrieve from " + file
                     + " file the item(s) with the key " + key + " but " + key + ".xpath is missing!");
         }
         return element;
@@ -284,13 +400,13 @@ public abstract class BasePageObject {
 
     /**
      * This method interacts with selenium to retrieve the list of needed element. By xpath
-     * This method uses the TIMEOUT constant.
+     * This method uses the timeout of the key, see {@link #getTimeout(String)}.
      * 
      * @param key of the items to be selected. In the related selector file should exists an entry with: key.xpath
      * @return a List of the selected {@link WebElement} object
      */
     public List<WebElement> getElementsByXPath(String key) {
-        return this.getElementsByXPath(key, TIMEOUT);
+        return this.getElementsByXPath(key, this.getTimeout(key));
     }
 
     /**
@@ -311,13 +427,94 @@ public abstract class BasePageObject {
 
     /**
      * This method checks if a {@link WebElement} is displayed and visible for selenium. By xpath
-     * This method uses the TIMEOUT constant.
+     * This method uses the timeout of the key, see {@link #getTimeout(String)}.
      * 
      * @param xpath of the item to be selected. In the related selector file should exists an entry with and key.xpath
      * @return true if the element exists and it's visible
      */
     public boolean isElementVisibleByXPath(String key) {
-        return this.isElementVisibleByXPath(key, TIMEOUT);
+        return this.isElementVisibleByXPath(key, this.getTimeout(key));
+    }
+
+    /**
+     * This method checks that a {@link WebElement} is not displayed. By xpath
+     * It doesn't wait for the element to appear: it returns as soon as the element is hidden or missing, so it's
+     * meant for "should not be shown" assertions.
+     * 
+     * @param key of the item to be checked. In the related selector file should exists an entry with: key.xpath
+     * @param timeOut limit for wait until disappear, 0 to check it just once.
+     * @return true if the element is hidden or missing in the DOM.
+     */
+    public boolean isElementNotVisibleByXPath(String key, long timeOut) {
+        return this.isNotVisible(key, this.getXPathSelector(key), timeOut);
+    }
+
+    /**
+     * This method checks right now that a {@link WebElement} is not displayed. By xpath
+     * 
+     * @param key of the item to be checked. In the related selector file should exists an entry with: key.xpath
+     * @return true if the element is hidden or missing in the DOM.
+     */
+    public boolean isElementNotVisibleByXPath(String key) {
+        return this.isElementNotVisibleByXPath(key, 0);
+    }
+
+    // **** Batch methods section ****//
+    /**
+     * This method checks if several elements are displayed, evaluating all of them in a single script per poll.
+     * It waits until all of them are visible or the timeout expires.
+     * 
+     * @param timeOut limit for wait until appear.
+     * @param keys of the items to be checked. In the related selector file should exists an entry with: key.xpath,
+     *            key.id (and optionally key.type) or key.name (and optionally key.type)
+     * @return the visibility of each key, in the same order.
+     */
+    public Map<String, Boolean> areElementsVisible(long timeOut, String... keys) {
+        return this.checkElements(ObserverWaits.VISIBLE, timeOut, keys);
+    }
+
+    /**
+     * This method checks if several elements are displayed, evaluating all of them in a single script per poll.
+     * This method uses the longest timeout of the keys, see {@link #getTimeout(String)}.
+     * 
+     * @param keys of the items to be checked.
+     * @return the visibility of each key, in the same order.
+     */
+    public Map<String, Boolean> areElementsVisible(String... keys) {
+        return this.areElementsVisible(this.getTimeout(keys), keys);
+    }
+
+    /**
+     * This method checks if several elements exist in the DOM, evaluating all of them in a single script per poll.
+     * It waits until all of them exist or the timeout expires.
+     * 
+     * @param timeOut limit for wait until appear.
+     * @param keys of the items to be checked.
+     * @return the existence of each key, in the same order.
+     */
+    public Map<String, Boolean> existElements(long timeOut, String... keys) {
+        return this.checkElements(ObserverWaits.PRESENT, timeOut, keys);
+    }
+
+    /**
+     * This method checks if several elements exist in the DOM, evaluating all of them in a single script per poll.
+     * This method uses the longest timeout of the keys, see {@link #getTimeout(String)}.
+     * 
+     * @param keys of the items to be checked.
+     * @return the existence of each key, in the same order.
+     */
+    public Map<String, Boolean> existElements(String... keys) {
+        return this.existElements(this.getTimeout(keys), keys);
+    }
+
+    /**
+     * It checks if all the values of a batch result are true:
+     * 
+     * @param results of {@link #areElementsVisible(long, String...)} or {@link #existElements(long, String...)}.
+     * @return true if all the elements were found.
+     */
+    protected boolean all(Map<String, Boolean> results) {
+        return !results.containsValue(Boolean.FALSE);
     }
 
     // **** Private methods section ****//
@@ -357,12 +554,7 @@ public abstract class BasePageObject {
      * @return the built id selector or null if it doesn't found it.
      */
     private WebElement getElementByIdJustId(String id, long timeOut) {
-        this.driver.wait(By.id(id), timeOut);
-        try {
-            return this.driver.findElementById(id);
-        } catch (Exception e) {
-            return null;
-        }
+        return this.driver.waitForElement(By.id(id), timeOut);
     }
 
     /**
@@ -374,12 +566,7 @@ public abstract class BasePageObject {
      * @return the built id selector or null if it doesn't found it.
      */
     private WebElement getElementById(String type, String id, long timeOut) {
-        this.driver.wait(By.id(this.buildIdSelector(type, id)), timeOut);
-        try {
-            return this.driver.findElementById(this.buildIdSelector(type, id));
-        } catch (Exception e) {
-            return null;
-        }
+        return this.driver.waitForElement(By.id(this.buildIdSelector(type, id)), timeOut);
     }
 
     /**
@@ -390,12 +577,7 @@ public abstract class BasePageObject {
      * @return the built name selector or null if it doesn't found it.
      */
     private WebElement getElementByNameJustName(String name, long timeOut) {
-        this.driver.wait(By.name(name), timeOut);
-        try {
-            return this.driver.findElementByName(name);
-        } catch (Exception e) {
-            return null;
-        }
+        return this.driver.waitForElement(By.name(name), timeOut);
     }
 
     /**
@@ -407,12 +589,7 @@ public abstract class BasePageObject {
      * @return the built name selector or null if it doesn't found it.
      */
     private WebElement getElementByName(String type, String name, long timeOut) {
-        this.driver.wait(By.name(this.buildIdSelector(type, name)), timeOut);
-        try {
-            return this.driver.findElementByName(this.buildIdSelector(type, name));
-        } catch (Exception e) {
-            return null;
-        }
+        return this.driver.waitForElement(By.name(this.buildIdSelector(type, name)), timeOut);
     }
 
     /**
@@ -423,17 +600,7 @@ public abstract class BasePageObject {
      * @return the built xpath selector or null if it doesn't found it.
      */
     private WebElement getElementByXpath(String xpath, long timeOut) {
-        this.driver.wait(By.xpath(xpath), timeOut);
-        try {
-            List<WebElement> elements = this.driver.findElementsByXPath(xpath);
-            if (elements != null && !elements.isEmpty()) {
-                return elements.get(0);
-            } else {
-                return null;
-            }
-        } catch (Exception e) {
-            return null;
-        }
+        return this.driver.waitForElement(By.xpath(xpath), timeOut);
     }
 
     /**
@@ -444,12 +611,213 @@ public abstract class BasePageObject {
      * @return the built xpath list or null if it doesn't found it.
      */
     private List<WebElement> getElementsByXpath(String xpath, long timeOut) {
-        this.driver.wait(By.xpath(xpath), timeOut);
-        try {
-            return this.driver.findElementsByXPath(xpath);
-        } catch (Exception e) {
-            return null;
+        return this.driver.waitForElements(By.xpath(xpath), timeOut);
+    }
+
+    /**
+     * This method polls a condition of several elements, evaluating all of them in a single script per poll. After
+     * {@link #MAX_SCRIPT_FAILURES} consecutive script failures, or if a selector can't be resolved in the browser,
+     * they are checked with WebDriver calls:
+     * 
+     * @param condition {@link ObserverWaits#VISIBLE} or {@link ObserverWaits#PRESENT}.
+     * @param timeOut limit for wait until all of them satisfy the condition.
+     * @param keys of the items to be checked.
+     * @return the result of each key in the last poll.
+     */
+    private Map<String, Boolean> checkElements(final String condition, long timeOut, String... keys) {
+        final Map<String, Boolean> results = new LinkedHashMap<String, Boolean>();
+        final List<String> checkedKeys = new ArrayList<String>();
+        final List<By> bySelectors = new ArrayList<By>();
+        final List<List<String>> selectors = new ArrayList<List<String>>();
+        boolean resolvable = true;
+
+        for (String key : keys) {
+            results.put(key, Boolean.FALSE);
+            By selector = this.getSelector(key);
+            if (selector != null) {
+                checkedKeys.add(key);
+                bySelectors.add(selector);
+                JsSelector jsSelector = JsSelector.of(selector);
+                if (jsSelector != null) {
+                    selectors.add(Arrays.asList(jsSelector.getKind(), jsSelector.getValue()));
+                } else {
+                    resolvable = false;
+                }
+            } else {
+                log.error("Trying to retrieve the item with the key " + key + " but its selector is missing!");
+            }
+        }
+
+        final boolean useScript = resolvable;
+        if (!checkedKeys.isEmpty()) {
+            config.getPoller().await(new Poller.Probe<Boolean>() {
+                private int scriptFailures = useScript ? 0 : MAX_SCRIPT_FAILURES;
+
+                @Override
+                public Boolean probe() {
+                    if (scriptFailures < MAX_SCRIPT_FAILURES) {
+                        Object found;
+                        try {
+                            found = ((JavascriptExecutor) driver).executeScript(BATCH_CHECK_SCRIPT, selectors,
+                                    condition);
+                        } catch (WebDriverException e) {
+                            // the page could be being loaded, the next poll will check it again
+                            scriptFailed(e.getMessage());
+                            return false;
+                        }
+                        if (!(found instanceof List) || ((List<?>) found).size() < checkedKeys.size()) {
+                            scriptFailed("unexpected result " + found);
+                            return false;
+                        }
+                        scriptFailures = 0;
+                        return this.store((List<?>) found);
+                    }
+
+                    List<Boolean> found = new ArrayList<Boolean>();
+                    for (By selector : bySelectors) {
+                        found.add(isSatisfied(selector));
+                    }
+                    return this.store(found);
+                }
+
+                private void scriptFailed(String reason) {
+                    scriptFailures++;
+                    log.warn("The batch check script failed (" + scriptFailures + "/" + MAX_SCRIPT_FAILURES + "): "
+                            + reason);
+                    if (scriptFailures == MAX_SCRIPT_FAILURES) {
+                        log.warn("Checking " + checkedKeys + " with WebDriver calls");
+                    }
+                }
+
+                private boolean isSatisfied(By selector) {
+                    try {
+                        List<WebElement> elements = driver.findElements(selector);
+                        return !elements.isEmpty()
+                                && (!condition.equals(ObserverWaits.VISIBLE) || elements.get(0).isDisplayed());
+                    } catch (StaleElementReferenceException e) {
+                        // the page changed during the check, next poll
+                        return false;
+                    }
+                }
+
+                private boolean store(List<?> found) {
+                    boolean all = true;
+                    for (int i = 0; i < checkedKeys.size(); i++) {
+                        boolean ok = Boolean.TRUE.equals(found.get(i));
+                        results.put(checkedKeys.get(i), ok);
+                        all &= ok;
+                    }
+                    return all;
+                }
+            }, timeOut * 1000);
+        }
+        return results;
+    }
+
+    /**
+     * It returns the longest default timeout of several keys:
+     * 
+     * @param keys of the items.
+     * @return the timeout in seconds.
+     */
+    private long getTimeout(String... keys) {
+        long timeOut = 0;
+        for (String key : keys) {
+            timeOut = Math.max(timeOut, this.getTimeout(key));
+        }
+        return timeOut;
+    }
+
+    /**
+     * It records the duration of a successful wait of a key, to derive its timeout:
+     * 
+     * @param key of the item.
+     * @param start of the wait, in milliseconds.
+     */
+    private void recordWait(String key, long start) {
+        config.getWaitTimeouts().record(this.className + "." + key, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * This method resolves the selector of a key, looking for key.xpath, key.id and key.name in that order:
+     * 
+     * @param key of the item.
+     * @return the selector or null if the key is missing.
+     */
+    private By getSelector(String key) {
+        By selector = this.getXPathSelector(key);
+        if (selector == null) {
+            selector = this.getIdSelector(key);
+        }
+        if (selector == null) {
+            selector = this.getNameSelector(key);
         }
+        return selector;
+    }
+
+    /**
+     * This method resolves the xpath selector of a key:
+     * 
+     * @param key of the item. In the related selector file should exists an entry with: key.xpath
+     * @return the selector or null if the key is missing.
+     */
+    private By getXPathSelector(String key) {
+        String xpath = this.getXPath(key);
+        return StringUtils.isNotBlank(xpath) ? By.xpath(xpath) : null;
+    }
+
+    /**
+     * This method resolves the id selector of a key:
+     * 
+     * @param key of the item. In the related selector file should exists an entry with: key.id (and optionally key.type)
+     * @return the selector or null if the key is missing.
+     */
+    private By getIdSelector(String key) {
+        PropertiesHandler handler = PropertiesHandler.getInstance();
+        String file = this.getSelectorsFilePath(key + ".id");
+        String type = handler.get(file, key + ".type");
+        String id = handler.get(file, key + ".id");
+        if (StringUtils.isNotBlank(id)) {
+            return By.id(StringUtils.isNotBlank(type) ? this.buildIdSelector(type, id) : id);
+        }
+        return null;
+    }
+
+    /**
+     * This method resolves the name selector of a key:
+     * 
+     * @param key of the item. In the related selector file should exists an entry with: key.name (and optionally
+     *            key.type)
+     * @return the selector or null if the key is missing.
+     */
+    private By getNameSelector(String key) {
+        PropertiesHandler handler = PropertiesHandler.getInstance();
+        String file = this.getSelectorsFilePath(key + ".name");
+        String type = handler.get(file, key + ".type");
+        String name = handler.get(file, key + ".name");
+        if (StringUtils.isNotBlank(name)) {
+            return By.name(StringUtils.isNotBlank(type) ? this.buildIdSelector(type, name) : name);
+        }
+        return null;
+    }
+
+    /**
+     * This method checks if an element is not visible, without waiting for it to appear:
+     * 
+     * @param key of the item, for the error message.
+     * @param selector of the item, null if the key is missing.
+     * @param timeOut limit for wait until disappear, 0 to check it just once.
+     * @return true if the element is hidden or missing in the DOM, false if it's visible or the key is missing.
+     */
+    private boolean isNotVisible(String key, By selector, long timeOut) {
+        if (selector == null) {
+            log.error("Trying to check the item with the key " + key + " but its selector is missing!");
+            return false;
+        }
+        if (timeOut <= 0) {
+            return !this.driver.isElementDisplayedNow(selector);
+        }
+        return this.driver.waitUntilNotVisible(selector, timeOut);
     }
 
     /**
@@ -473,8 +841,8 @@ public abstract class BasePageObject {
      */
     protected String getXPath(String key) {
         PropertiesHandler handler = PropertiesHandler.getInstance();
-        handler.load(this.getSelectorsFilePath(key + ".xpath"));
-        String xpath = handler.get(key + ".xpath");
+        String file = this.getSelectorsFilePath(key + ".xpath");
+        String xpath = handler.get(file, key + ".xpath");
         return xpath;
     }
 
@@ -486,27 +854,30 @@ public abstract class BasePageObject {
      */
     protected void waitForById(String key, long timeOut) {
         PropertiesHandler handler = PropertiesHandler.getInstance();
-        handler.load(this.getSelectorsFilePath(key + ".id"));
+        String file = this.getSelectorsFilePath(key + ".id");
         // String type = handler.get(key + ".type"); // Could be null if the ID
         // is not own
-        String id = handler.get(key + ".id"); // getElementByIdJustId
+        String id = handler.get(file, key + ".id"); // getElementByIdJustId
 
         // If the ID is found
         if (StringUtils.isNotBlank(id)) {
-            this.driver.wait(By.xpath("//*[@id='" + id + "']"), timeOut);
+            long start = System.currentTimeMillis();
+            if (this.driver.wait(By.xpath("//*[@id='" + id + "']"), timeOut)) {
+                this.recordWait(key, start);
+            }
         } else { // Else, the ID is not in .properties
-            log.error("Trying to find from " + this.getSelectorsFilePath(key + ".id") + " file the item with the key "
+            log.error("Trying to find from " + file + " file the item with the key "
                     + key + " but " + key + ".id is missing!");
         }
     }
 
     /**
      * Wait for element By ID, with time limit defined.
-     * This method uses the TIMEOUT constant:
+     * This method uses the timeout of the key, see {@link #getTimeout(String)}:
      * @param key of the element to search.
      */
     protected void waitForById(String key) {
-        this.waitForById(key, TIMEOUT);
+        this.waitForById(key, this.getTimeout(key));
     }
 
     /**
@@ -518,7 +889,10 @@ public abstract class BasePageObject {
         String xpath = this.getXPath(key);
 
         if (xpath != null && StringUtils.isNotBlank(xpath)) {
-            this.driver.wait(By.xpath(xpath), timeOut);
+            long start = System.currentTimeMillis();
+            if (this.driver.wait(By.xpath(xpath), timeOut)) {
+                this.recordWait(key, start);
+            }
         } else { // Else, the ID is not in .properties
             log.error("Trying to find from " + this.getSelectorsFilePath(key + ".xpath")
                     + " file the item with the key " + key + " but " + key + ".xpath is missing!");
@@ -527,11 +901,11 @@ public abstract class BasePageObject {
 
     /**
      * Wait for element By Xpath, with time limit defined.
-     * This method uses the TIMEOUT constant:
+     * This method uses the timeout of the key, see {@link #getTimeout(String)}:
      * @param key of the element to search.
      */
     protected void waitForByXPath(String key) {
-        this.waitForByXPath(key, TIMEOUT);
+        this.waitForByXPath(key, this.getTimeout(key));
     }
 
     /**
@@ -539,15 +913,14 @@ public abstract class BasePageObject {
      * @param element to search for.
      * @param timeOut limit for searching.
      */
-    protected void waitForByElement(WebElement element, long timeOut) {
-        long start = new Date().getTime();
-        long end = start + (timeOut * 1000);
-        long now = new Date().getTime();
-
+    protected void waitForByElement(final WebElement element, long timeOut) {
         try {
-            while (!element.isDisplayed() && now <= end) {
-                now = new Date().getTime();
-            }
+            config.getPoller().await(new Poller.Probe<Boolean>() {
+                @Override
+                public Boolean probe() {
+                    return element.isDisplayed();
+                }
+            }, timeOut * 1000);
         } catch (Exception ex) {
             // this try-catch is needed because if the element is hidden,
             // isDisplayed works fine but
@@ -572,15 +945,14 @@ public abstract class BasePageObject {
      * @param element to wait until disappear.
      * @param timeOut limit for wait until disappear.
      */
-    protected void waitUntilDisappearWebElement(WebElement element, long timeOut) {
-        long start = new Date().getTime();
-        long end = start + (timeOut * 1000);
-        long now = new Date().getTime();
-
+    protected void waitUntilDisappearWebElement(final WebElement element, long timeOut) {
         try {
-            do {
-                now = new Date().getTime();
-            } while (element.isDisplayed() && now <= end);
+            config.getPoller().await(new Poller.Probe<Boolean>() {
+                @Override
+                public Boolean probe() {
+                    return !element.isDisplayed();
+                }
+            }, timeOut * 1000);
         } catch (Exception ex) {
             // this try-catch is needed because if the element is hidden,
             // isDisplayed works fine but
@@ -605,15 +977,7 @@ public abstract class BasePageObject {
      * @param timeOut limit for wait until disappear.
      */
     protected void waitUntilDisappearByXPath(String key, long timeOut) {
-        long start = new Date().getTime();
-        long end = start + (timeOut * 1000);
-        long now = new Date().getTime();
-        List<WebElement> elements = null;
-
-        do {
-            elements = driver.findElements(By.xpath(this.getXPath(key)));
-            now = new Date().getTime();
-        } while (elements != null && !elements.isEmpty() && now <= end);
+        this.waitUntilDisappear(By.xpath(this.getXPath(key)), timeOut);
     }
 
     /**
@@ -632,18 +996,10 @@ public abstract class BasePageObject {
      */
     protected void waitUntilDisappearByID(String key, long timeOut) {
         PropertiesHandler handler = PropertiesHandler.getInstance();
-        handler.load(this.getSelectorsFilePath(key + ".id"));
-        String id = handler.get(key + ".id");
-
-        long start = new Date().getTime();
-        long end = start + (timeOut * 1000);
-        long now = new Date().getTime();
-        List<WebElement> elements = null;
+        String file = this.getSelectorsFilePath(key + ".id");
+        String id = handler.get(file, key + ".id");
 
-        do {
-            elements = driver.findElements(By.id(id));
-            now = new Date().getTime();
-        } while (elements != null && !elements.isEmpty() && now <= end);
+        this.waitUntilDisappear(By.id(id), timeOut);
     }
 
     /**
@@ -655,6 +1011,20 @@ public abstract class BasePageObject {
         this.waitUntilDisappearByID(key, TIMEOUT);
     }
 
+    /**
+     * Wait until there is no element matching the selector:
+     * @param selector of the element to wait until disappear.
+     * @param timeOut limit for wait until disappear.
+     */
+    private void waitUntilDisappear(final By selector, long timeOut) {
+        config.getPoller().await(new Poller.Probe<Boolean>() {
+            @Override
+            public Boolean probe() {
+                return driver.findElements(selector).isEmpty();
+            }
+        }, timeOut * 1000);
+    }
+
     /**
      * This function emulates a Scroll to see an element, using JavaScript.
      * @param element to search.
@@ -21,6 +21,9 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.jdom.Document;
@@ -35,7 +38,9 @@ import org.monte.screenrecorder.ScreenRecorder;
 import org.monte.screenrecorder.ScreenRecorder.State;
 import org.testng.ITestResult;
 import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeSuite;
 import org.testng.annotations.Listeners;
 
 import com.github.agomezmoron.testng.listener.SeleniumScreenshotOnFailureListener;
@@ -43,7 +48,9 @@ import com.github.agomezmoron.testng.listener.SystemScreenshotOnFailureListener;
 
 import com.emergya.selenium.drivers.EmergyaWebDriver;
 import com.emergya.selenium.pageObject.BasePageObject;
+import com.emergya.selenium.utils.Deadline;
 import com.emergya.selenium.utils.Initialization;
+import com.emergya.selenium.utils.StartupTimings;
 
 /**
  * TestNG after and before methods
@@ -53,25 +60,84 @@ import com.emergya.selenium.utils.Initialization;
 @Listeners({SeleniumScreenshotOnFailureListener.class, SystemScreenshotOnFailureListener.class})
 public abstract class DefaultTestSet {
 
+    /**
+     * Driver of the last started test. When the tests are run in parallel,
+     * it could be the driver of another thread, so {@link #getDriver()} must
+     * be used instead. The page objects built with the driver of another
+     * thread log a warning.
+     * 
+     * @deprecated use {@link #getDriver()}
+     */
+    @Deprecated
     protected static EmergyaWebDriver driver;
     protected static Initialization config = Initialization.getInstance();
 
+    /**
+     * Driver, screen recorder and test case name of each thread, so the tests
+     * can be run with TestNG parallel="methods".
+     */
+    private static final ThreadLocal<EmergyaWebDriver> threadDriver = new ThreadLocal<EmergyaWebDriver>();
+    private static final ThreadLocal<ScreenRecorder> threadRecorder = new ThreadLocal<ScreenRecorder>();
+    private static final ThreadLocal<String> threadTcName = new ThreadLocal<String>();
+
+    /**
+     * Number of tests running at the same time, to warn about the static
+     * driver when they are run in parallel.
+     */
+    private static final AtomicInteger runningTests = new AtomicInteger();
+    private static final AtomicBoolean parallelWarned = new AtomicBoolean();
+
+    /**
+     * Screen recorder of the last started test of this instance.
+     * 
+     * @deprecated shared by the parallel tests, use
+     *             {@link #getScreenRecorder()}
+     */
+    @Deprecated
     protected ScreenRecorder screenRecorder;
+
+    /**
+     * Name of the last started test of this instance.
+     * 
+     * @deprecated shared by the parallel tests, use {@link #getTcName()}
+     */
+    @Deprecated
     protected String tcName = "";
+
     private String failedSuitePath = "src/main/resources/suites/emergyaFailedTest.xml";
 
     protected static Logger log = Logger.getLogger(DefaultTestSet.class);
 
+    @BeforeSuite(alwaysRun = true)
+    public void startDriverPrewarm() {
+        config.startDriverPrewarm();
+    }
+
     @BeforeMethod
     public void nameBefore(Method method) {
+        threadTcName.set(method.getName());
         this.tcName = method.getName();
     }
 
     @BeforeMethod
     public void before() {
-        driver = config.initialize();
+        EmergyaWebDriver driver = config.acquireDriver();
+        if (runningTests.incrementAndGet() > 1 && parallelWarned.compareAndSet(false, true)) {
+            log.warn("Tests running in parallel: the static driver field holds the driver of the last started"
+                    + " test, use getDriver() to get the one of each test");
+        }
+        threadDriver.set(driver);
+        DefaultTestSet.driver = driver;
+        log.info("Driver startup of " + getTcName() + ": " + config.getStartupRecord());
+
+        if (config.getTestDeadline() > 0) {
+            // time budget of all the waits of the test, cleared after it
+            Deadline.start(config.getTestDeadline(), TimeUnit.SECONDS);
+        }
 
-        if (driver != null && config.isRecordVideo() == true) {
+        if (driver != null && config.isRecordVideo() == true && config.isHeadless()) {
+            log.info("Headless execution, the video is not recorded");
+        } else if (driver != null && config.isRecordVideo() == true) {
             long startTime = System.currentTimeMillis();
             try {
                 log.info("Recording video");
@@ -80,7 +146,7 @@ public abstract class DefaultTestSet {
                         .getLocalGraphicsEnvironment().getDefaultScreenDevice()
                         .getDefaultConfiguration();
 
-                this.screenRecorder = new ScreenRecorder(gc, null, new Format(
+                ScreenRecorder recorder = new ScreenRecorder(gc, null, new Format(
                         MediaTypeKey, MediaType.FILE, MimeTypeKey, MIME_AVI),
                         new Format(MediaTypeKey, MediaType.VIDEO, EncodingKey,
                                 ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE,
@@ -93,7 +159,9 @@ public abstract class DefaultTestSet {
                                 "black", FrameRateKey, Rational.valueOf(30)),
                         null, new File(config.getVideoRecordingPath()));
 
-                screenRecorder.start();
+                recorder.start();
+                threadRecorder.set(recorder);
+                this.screenRecorder = recorder;
             } catch (Exception e) {
                 log.warn("Recorder could not be initilized. No video will be recording");
             }
@@ -108,17 +176,37 @@ public abstract class DefaultTestSet {
     public void afterAllIsSaidAndDone() {
         log.info("Function afterAllIsSaidAndDone");
 
+        // the test deadline and the ones left open by the test must not cut
+        // the waits of the next tests of this thread
+        Deadline.clear();
+        runningTests.decrementAndGet();
+
+        EmergyaWebDriver driver = threadDriver.get();
         if (driver != null) {
-            if (driver != null) {
-                driver.manage().deleteAllCookies();
-                driver.quit();
+            threadDriver.remove();
+            if (DefaultTestSet.driver == driver) {
+                DefaultTestSet.driver = null;
             }
+            config.releaseDriver(driver);
         }
     }
 
+    @AfterSuite(alwaysRun = true)
+    public void shutdownDriverPool() {
+        config.shutdownDriverPool();
+        config.stopDriverServices();
+        StartupTimings.logSummary();
+        config.getWaitTimeouts().save();
+    }
+
     @AfterMethod
     public void recordVideo(ITestResult result) {
-        if (driver != null && (config.isRecordVideo() == true)
+        ScreenRecorder screenRecorder = threadRecorder.get();
+        threadRecorder.remove();
+
+        // the recorder is checked instead of the driver, which can be
+        // released before this method runs
+        if ((config.isRecordVideo() == true)
                 && (screenRecorder != null)
                 && (screenRecorder.getState().equals(State.RECORDING))) {
 
@@ -141,7 +229,7 @@ public abstract class DefaultTestSet {
                     }
                 } else {
                     String endPath = tempRecordeFile.getAbsolutePath()
-                            .replaceAll("ScreenRecording", this.tcName);
+                            .replaceAll("ScreenRecording", getTcName());
                     if (tempRecordeFile.renameTo(new File(endPath))) {
                         log.info("File stored in " + endPath);
                     } else {
@@ -184,6 +272,34 @@ public abstract class DefaultTestSet {
     }
 
     // *** Public methods ***//
+    /**
+     * Obtains the driver of the test running in the current thread
+     *
+     * @return driver of the current thread
+     */
+    public static EmergyaWebDriver getDriver() {
+        return threadDriver.get();
+    }
+
+    /**
+     * Obtains the name of the test running in the current thread
+     *
+     * @return test case name
+     */
+    public static String getTcName() {
+        String name = threadTcName.get();
+        return name != null ? name : "";
+    }
+
+    /**
+     * Obtains the screen recorder of the test running in the current thread
+     *
+     * @return screen recorder or null if the video is not being recorded
+     */
+    protected static ScreenRecorder getScreenRecorder() {
+        return threadRecorder.get();
+    }
+
     /**
      * Obtains the initialization configuration
      *
@@ -0,0 +1,122 @@
+package com.emergya.selenium.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Poller whose intervals are learned from the observed latencies of each
+ * selector. An element that usually appears in 60ms is polled every few
+ * milliseconds at the start, while a slow one starts with longer intervals,
+ * so the average overhead of the waits is reduced without flooding the driver.
+ */
+public class AdaptivePoller {
+
+    /**
+     * Weight of the last latency in the moving average.
+     */
+    private static final double ALPHA = 0.3;
+
+    /**
+     * Fraction of the expected latency used as first interval.
+     */
+    private static final double INTERVAL_FRACTION = 0.25;
+
+    /**
+     * Poller used for the selectors without history.
+     */
+    private final Poller defaultPoller;
+
+    /**
+     * Minimum interval between checks, in milliseconds.
+     */
+    private final long minInterval;
+
+    /**
+     * Moving average of the latency of each selector, in milliseconds.
+     */
+    private final ConcurrentMap<String, Double> latencies = new ConcurrentHashMap<String, Double>();
+
+    /**
+     * Constructor
+     *
+     * @param defaultPoller
+     *            used for the selectors without history, its maximum interval
+     *            and backoff are used for all of them
+     * @param minInterval
+     *            minimum interval between checks, in milliseconds
+     */
+    public AdaptivePoller(Poller defaultPoller, long minInterval) {
+        this.defaultPoller = defaultPoller;
+        this.minInterval = Math.max(1, minInterval);
+    }
+
+    /**
+     * Returns the poller for a selector, with intervals proportional to its
+     * expected latency.
+     *
+     * @param key
+     *            of the selector (condition and selector)
+     * @return the poller to be used
+     */
+    public Poller getPoller(String key) {
+        Double latency = latencies.get(key);
+        if (latency == null) {
+            return defaultPoller;
+        }
+        long interval = Math.max(minInterval,
+                Math.min(defaultPoller.getMaxInterval(), (long) (latency * INTERVAL_FRACTION)));
+        return new Poller(interval, defaultPoller.getMaxInterval(), defaultPoller.getBackoff());
+    }
+
+    /**
+     * Checks a condition with the poller of its selector and records the
+     * latency if it's satisfied.
+     *
+     * @param key
+     *            of the selector (condition and selector)
+     * @param probe
+     *            condition to be checked
+     * @param timeout
+     *            in milliseconds
+     * @return the first result of the probe that is not null or false, or null
+     *         if the timeout expired
+     */
+    public <T> T poll(String key, Poller.Probe<T> probe, long timeout) {
+        long start = System.nanoTime();
+        T result = getPoller(key).poll(probe, timeout);
+        if (result != null) {
+            record(key, (System.nanoTime() - start) / 1000000);
+        }
+        return result;
+    }
+
+    /**
+     * Adds a latency to the moving average of a selector.
+     *
+     * @param key
+     *            of the selector
+     * @param millis
+     *            until the condition was satisfied
+     */
+    public void record(String key, long millis) {
+        Double previous;
+        double next;
+        do {
+            previous = latencies.get(key);
+            next = previous == null ? millis : (ALPHA * millis) + ((1 - ALPHA) * previous);
+        } while (previous == null ? latencies.putIfAbsent(key, next) != null
+                : !latencies.replace(key, previous, next));
+    }
+
+    /**
+     * Returns the expected latency of a selector.
+     *
+     * @param key
+     *            of the selector
+     * @return milliseconds or -1 if there is no history
+     */
+    public long getLatency(String key) {
+        Double latency = latencies.get(key);
+        return latency == null ? -1 : latency.longValue();
+    }
+}
@@ -0,0 +1,138 @@
+package com.emergya.selenium.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time budget shared by all the waits of the current thread. While a deadline
+ * is active, every wait (page objects, driver utilities, poller) is cut to the
+ * remaining time, so an action with several nested waits fails within a
+ * bounded total time instead of N x TIMEOUT. Deadlines can be nested, the inner
+ * one can never last longer than the outer one.
+ *
+ * <pre>
+ * try (Deadline deadline = Deadline.start(30, TimeUnit.SECONDS)) {
+ *     page.doSomething();
+ * }
+ * </pre>
+ */
+public class Deadline implements AutoCloseable {
+
+    /**
+     * Active deadline of each thread.
+     */
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<Deadline>();
+
+    /**
+     * End of the deadline, as {@link System#nanoTime()}.
+     */
+    private final long end;
+
+    /**
+     * Deadline active when this one started.
+     */
+    private final Deadline parent;
+
+    /**
+     * Constructor
+     *
+     * @param end
+     *            of the deadline, as {@link System#nanoTime()}
+     * @param parent
+     *            deadline active when this one started
+     */
+    private Deadline(long end, Deadline parent) {
+        this.end = end;
+        this.parent = parent;
+    }
+
+    /**
+     * Starts a deadline in the current thread. If there is an active deadline
+     * ending earlier, the new one ends at the same time.
+     *
+     * @param timeout
+     *            of the deadline
+     * @param unit
+     *            of the timeout
+     * @return the new deadline, to be closed at the end of the action
+     */
+    public static Deadline start(long timeout, TimeUnit unit) {
+        Deadline parent = current.get();
+        long end = System.nanoTime() + unit.toNanos(Math.max(0, timeout));
+        if (parent != null && parent.end - end < 0) {
+            end = parent.end;
+        }
+        Deadline deadline = new Deadline(end, parent);
+        current.set(deadline);
+        return deadline;
+    }
+
+    /**
+     * Returns the active deadline of the current thread.
+     *
+     * @return the deadline or null if there is no one
+     */
+    public static Deadline current() {
+        return current.get();
+    }
+
+    /**
+     * Cuts a timeout to the remaining time of the active deadline.
+     *
+     * @param timeout
+     *            in milliseconds
+     * @return the timeout, or the remaining time of the deadline if it's
+     *         shorter
+     */
+    public static long clamp(long timeout) {
+        Deadline deadline = current.get();
+        if (deadline == null) {
+            return timeout;
+        }
+        return Math.min(timeout, deadline.getRemaining());
+    }
+
+    /**
+     * Returns the remaining time.
+     *
+     * @return milliseconds, 0 if the deadline expired
+     */
+    public long getRemaining() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()));
+    }
+
+    /**
+     * Checks if the deadline expired.
+     *
+     * @return true if there is no remaining time
+     */
+    public boolean isExpired() {
+        return end - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Removes all the deadlines of the current thread, e.g. at the end of a
+     * test, so a deadline that wasn't closed doesn't cut the waits of the next
+     * tests run by the same thread.
+     */
+    public static void clear() {
+        current.remove();
+    }
+
+    /**
+     * Finishes the deadline, the previous one is active again. The nested
+     * deadlines that weren't closed are finished too.
+     */
+    @Override
+    public void close() {
+        for (Deadline deadline = current.get(); deadline != null; deadline = deadline.parent) {
+            if (deadline == this) {
+                if (parent != null) {
+                    current.set(parent);
+                } else {
+                    current.remove();
+                }
+                return;
+            }
+        }
+    }
+}
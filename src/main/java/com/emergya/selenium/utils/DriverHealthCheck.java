@@ -0,0 +1,172 @@
+package com.emergya.selenium.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.JavascriptExecutor;
+
+import com.emergya.selenium.drivers.EmergyaWebDriver;
+
+/**
+ * Health of long-lived drivers. A driver is recycled when it's older than the
+ * maximum age, it has executed too many commands, its JS heap is too big
+ * (Chrome) or it doesn't answer a cheap script in time (hung browser).
+ */
+public class DriverHealthCheck {
+
+    /**
+     * Logger class initialization.
+     */
+    private static final Logger log = Logger.getLogger(DriverHealthCheck.class);
+
+    /**
+     * Liveness script: it returns the used JS heap when the browser exposes
+     * it, or -1.
+     */
+    private static final String PROBE_SCRIPT = "return (window.performance && window.performance.memory)"
+            + " ? window.performance.memory.usedJSHeapSize : -1;";
+
+    /**
+     * Threads to run the probes (and quit the sick drivers) with a timeout.
+     */
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "driver-health-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Maximum age of a driver in seconds, 0 for no limit.
+     */
+    private final long maxAge;
+
+    /**
+     * Maximum number of commands of a driver, 0 for no limit.
+     */
+    private final long maxCommands;
+
+    /**
+     * Maximum used JS heap in MB, 0 for no limit.
+     */
+    private final long maxHeap;
+
+    /**
+     * Milliseconds the probe can take, 0 to disable it.
+     */
+    private final long probeTimeout;
+
+    /**
+     * Constructor
+     *
+     * @param maxAge
+     *            in seconds, 0 for no limit
+     * @param maxCommands
+     *            executed by a driver, 0 for no limit
+     * @param maxHeap
+     *            used JS heap in MB, 0 for no limit
+     * @param probeTimeout
+     *            milliseconds to wait for the probe, 0 to disable it
+     */
+    public DriverHealthCheck(long maxAge, long maxCommands, long maxHeap, long probeTimeout) {
+        this.maxAge = maxAge;
+        this.maxCommands = maxCommands;
+        this.maxHeap = maxHeap;
+        this.probeTimeout = probeTimeout;
+    }
+
+    /**
+     * Checks the limits that don't need to talk to the browser: age and
+     * number of commands.
+     *
+     * @param driver
+     *            to be checked
+     * @param createdAt
+     *            creation time of the driver, in milliseconds
+     * @return the reason to recycle the driver or null if it's fine
+     */
+    public String checkLimits(EmergyaWebDriver driver, long createdAt) {
+        long age = System.currentTimeMillis() - createdAt;
+        if (maxAge > 0 && age > maxAge * 1000) {
+            return "age " + (age / 1000) + "s > " + maxAge + "s";
+        }
+        if (maxCommands > 0 && driver.getCommandCount() > maxCommands) {
+            return "commands " + driver.getCommandCount() + " > " + maxCommands;
+        }
+        return null;
+    }
+
+    /**
+     * Checks the limits and probes the browser with a cheap script.
+     *
+     * @param driver
+     *            to be checked
+     * @param createdAt
+     *            creation time of the driver, in milliseconds
+     * @return the reason to recycle the driver or null if it's fine
+     */
+    public String check(final EmergyaWebDriver driver, long createdAt) {
+        String reason = checkLimits(driver, createdAt);
+        if (reason != null || probeTimeout <= 0) {
+            return reason;
+        }
+
+        Future<Object> probe = executor.submit(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return ((JavascriptExecutor) driver).executeScript(PROBE_SCRIPT);
+            }
+        });
+
+        try {
+            Object heap = probe.get(probeTimeout, TimeUnit.MILLISECONDS);
+            if (maxHeap > 0 && heap instanceof Number) {
+                long heapMB = ((Number) heap).longValue() / (1024 * 1024);
+                if (heapMB > maxHeap) {
+                    return "JS heap " + heapMB + "MB > " + maxHeap + "MB";
+                }
+            }
+            return null;
+        } catch (TimeoutException e) {
+            probe.cancel(true);
+            return "no answer in " + probeTimeout + "ms";
+        } catch (ExecutionException e) {
+            return "probe failed: " + e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "probe interrupted";
+        }
+    }
+
+    /**
+     * Quits a driver in background, so a hung browser doesn't block the
+     * caller.
+     *
+     * @param driver
+     *            to quit
+     */
+    public static void quitInBackground(final EmergyaWebDriver driver) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    driver.quit();
+                } catch (RuntimeException e) {
+                    log.warn("Error quitting a driver: " + e.toString());
+                }
+            }
+        });
+    }
+}
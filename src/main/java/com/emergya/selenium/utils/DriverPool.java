@@ -0,0 +1,514 @@
+package com.emergya.selenium.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.WebDriverException;
+
+import com.emergya.selenium.drivers.EmergyaWebDriver;
+
+/**
+ * Pool of browser sessions reused across test methods. Instead of starting a
+ * new browser for each test, a released driver is cleaned (cookies, storage,
+ * extra windows) and taken back to the login URL, ready for the next test.
+ * Optionally, the next drivers can be launched in background while the current
+ * tests are running (pre-warming).
+ */
+public class DriverPool {
+
+    /**
+     * Logger class initialization.
+     */
+    private static final Logger log = Logger.getLogger(DriverPool.class);
+
+    /**
+     * Time between checks while waiting for a free driver.
+     */
+    private static final long WAIT_SLICE = 200; // Milliseconds
+
+    /**
+     * Script to clear the web storage of the current origin.
+     */
+    private static final String CLEAR_STORAGE_SCRIPT = "try { window.localStorage.clear(); } catch (e) {}"
+            + " try { window.sessionStorage.clear(); } catch (e) {}";
+
+    /**
+     * Configuration used to create new drivers.
+     */
+    private final Initialization config;
+
+    /**
+     * Number of drivers the pool keeps alive.
+     */
+    private final int minSize;
+
+    /**
+     * Maximum number of drivers the pool can create.
+     */
+    private final int maxSize;
+
+    /**
+     * Number of tests a driver is used for before being recycled.
+     */
+    private final int maxUses;
+
+    /**
+     * Seconds to wait for a free driver when the pool is exhausted.
+     */
+    private final long acquireTimeout;
+
+    /**
+     * Number of idle drivers to be launched in background.
+     */
+    private final int prewarm;
+
+    /**
+     * Health check of the drivers, null to disable it.
+     */
+    private final DriverHealthCheck healthCheck;
+
+    /**
+     * Drivers ready to be used. The last released one is the first served.
+     */
+    private final LinkedBlockingDeque<PooledDriver> idle = new LinkedBlockingDeque<PooledDriver>();
+
+    /**
+     * Drivers currently used by a test.
+     */
+    private final Map<EmergyaWebDriver, PooledDriver> leased = new ConcurrentHashMap<EmergyaWebDriver, PooledDriver>();
+
+    /**
+     * Number of live drivers (idle + leased + being created).
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Number of drivers being launched in background.
+     */
+    private final AtomicInteger warming = new AtomicInteger();
+
+    /**
+     * Executor to launch the drivers in background.
+     */
+    private ExecutorService warmer;
+
+    /**
+     * Flag to reject drivers once the pool is shut down.
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Hook to quit the drivers if the JVM ends before the pool is shut down.
+     */
+    private final Thread shutdownHook;
+
+    /**
+     * Constructor
+     *
+     * @param config
+     *            used to create the drivers
+     * @param minSize
+     *            number of drivers kept alive
+     * @param maxSize
+     *            maximum number of drivers
+     * @param maxUses
+     *            number of tests a driver is used before being recycled
+     * @param acquireTimeout
+     *            seconds to wait for a free driver
+     * @param prewarm
+     *            number of idle drivers to be launched in background, 0 to
+     *            launch them only when they are needed
+     * @param healthCheck
+     *            to recycle sick drivers, it could be null
+     */
+    public DriverPool(Initialization config, int minSize, int maxSize, int maxUses, long acquireTimeout,
+            int prewarm, DriverHealthCheck healthCheck) {
+        this.config = config;
+        this.maxSize = Math.max(1, maxSize);
+        this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+        this.maxUses = Math.max(1, maxUses);
+        this.acquireTimeout = acquireTimeout;
+        this.prewarm = Math.max(0, prewarm);
+        this.healthCheck = healthCheck;
+
+        if (this.prewarm > 0) {
+            this.warmer = Executors.newFixedThreadPool(this.prewarm, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "driver-prewarm-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        this.shutdownHook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                shutdown();
+            }
+        }, "driver-pool-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Creates the drivers needed to reach the minimum size of the pool. If the
+     * pre-warming is enabled, they are launched in background.
+     */
+    public void fill() {
+        if (prewarm > 0) {
+            warmUp();
+            return;
+        }
+        while (!closed && size.get() < minSize && reserveSlot()) {
+            PooledDriver pooled = create();
+            if (pooled == null) {
+                break;
+            }
+            idle.offerLast(pooled);
+        }
+    }
+
+    /**
+     * Returns a driver ready to be used, creating a new one if there is no idle
+     * driver and the pool is not full.
+     *
+     * @return the driver to be used by the test
+     */
+    public EmergyaWebDriver acquire() {
+        log.info("[log-Pool] " + this.getClass().getName() + "- Start acquire method");
+
+        if (closed) {
+            throw new WebDriverException("The driver pool is shut down");
+        }
+
+        PooledDriver pooled = pollHealthy();
+        long end = System.currentTimeMillis() + (acquireTimeout * 1000);
+
+        while (pooled == null) {
+            // if a driver is being launched in background, it's faster to
+            // wait for it than launching another one
+            if (warming.get() == 0 && reserveSlot()) {
+                pooled = create();
+                if (pooled == null) {
+                    throw new WebDriverException("The driver pool couldn't create a new driver");
+                }
+            } else {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new WebDriverException("No driver was released in " + acquireTimeout
+                            + " seconds. Pool max size: " + maxSize);
+                }
+                try {
+                    pooled = takeHealthy(idle.pollFirst(Math.min(remaining, WAIT_SLICE), TimeUnit.MILLISECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new WebDriverException("Interrupted while waiting for a driver", e);
+                }
+            }
+        }
+
+        pooled.uses++;
+        leased.put(pooled.driver, pooled);
+
+        // launching the driver for the next test
+        warmUp();
+
+        log.info("[log-Pool] " + this.getClass().getName() + "- End acquire method (use " + pooled.uses + "/"
+                + maxUses + ")");
+
+        return pooled.driver;
+    }
+
+    /**
+     * Gives back a driver to the pool. The driver is cleaned to be reused or
+     * quit if it has reached the maximum number of uses.
+     *
+     * @param driver
+     *            previously returned by {@link #acquire()}
+     */
+    public void release(EmergyaWebDriver driver) {
+        log.info("[log-Pool] " + this.getClass().getName() + "- Start release method");
+
+        PooledDriver pooled = driver == null ? null : leased.remove(driver);
+        String reason;
+
+        if (pooled == null) {
+            log.warn("Released driver doesn't belong to the pool, quitting it");
+            quitQuietly(driver);
+        } else if (closed || pooled.uses >= maxUses) {
+            log.info("Driver used " + pooled.uses + " times, recycling it");
+            discard(pooled);
+        } else if (healthCheck != null && (reason = healthCheck.checkLimits(driver, pooled.createdAt)) != null) {
+            log.info("Driver limit reached (" + reason + "), recycling it");
+            discard(pooled);
+        } else if (!reset(pooled)) {
+            log.warn("Driver couldn't be cleaned, recycling it");
+            discard(pooled);
+        } else {
+            idle.offerFirst(pooled);
+        }
+
+        fill();
+
+        log.info("[log-Pool] " + this.getClass().getName() + "- End release method");
+    }
+
+    /**
+     * Quits all the drivers of the pool. The shutdown hook is removed, so a
+     * pool shut down explicitly is not kept alive until the JVM ends.
+     */
+    public void shutdown() {
+        closed = true;
+
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // the JVM is already shutting down, the hook is running
+            }
+        }
+
+        if (warmer != null) {
+            warmer.shutdownNow();
+        }
+
+        List<PooledDriver> all = new ArrayList<PooledDriver>(leased.values());
+        leased.clear();
+        PooledDriver pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            all.add(pooled);
+        }
+
+        for (PooledDriver toQuit : all) {
+            discard(toQuit);
+        }
+    }
+
+    // **** Private methods section ****//
+    /**
+     * Reserves room for a new driver if the pool is not full.
+     *
+     * @return true if a new driver can be created
+     */
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = size.get();
+            if (current >= maxSize) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Takes the first healthy idle driver, recycling the sick ones.
+     *
+     * @return a healthy idle driver or null if there is no one
+     */
+    private PooledDriver pollHealthy() {
+        PooledDriver pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (takeHealthy(pooled) != null) {
+                return pooled;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Probes an idle driver before handing it out. A sick driver is quit in
+     * background, because a hung browser could block the quit too.
+     *
+     * @param pooled
+     *            idle driver, it could be null
+     * @return the driver if it's healthy, otherwise null
+     */
+    private PooledDriver takeHealthy(PooledDriver pooled) {
+        if (pooled == null || healthCheck == null) {
+            return pooled;
+        }
+        String reason = healthCheck.check(pooled.driver, pooled.createdAt);
+        if (reason == null) {
+            return pooled;
+        }
+        log.warn("Unhealthy driver (" + reason + "), recycling it");
+        DriverHealthCheck.quitInBackground(pooled.driver);
+        size.decrementAndGet();
+        return null;
+    }
+
+    /**
+     * Launches in background the drivers needed to have the configured number
+     * of idle drivers and the minimum size of the pool.
+     */
+    private synchronized void warmUp() {
+        if (warmer == null) {
+            return;
+        }
+        while (!closed && (idle.size() + warming.get() < prewarm || size.get() < minSize) && reserveSlot()) {
+            warming.incrementAndGet();
+            try {
+                warmer.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        warm();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // the executor was shut down
+                warming.decrementAndGet();
+                size.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Launches a driver and leaves it ready in the idle queue. The slot must be
+     * reserved previously.
+     */
+    private void warm() {
+        try {
+            log.info("Pre-warming a new driver");
+            PooledDriver pooled = create();
+            if (pooled != null) {
+                if (closed) {
+                    discard(pooled);
+                } else {
+                    idle.offerLast(pooled);
+                }
+            }
+        } finally {
+            warming.decrementAndGet();
+        }
+    }
+
+    /**
+     * Creates a new driver. The slot must be reserved previously.
+     *
+     * @return the new pooled driver or null if it couldn't be created
+     */
+    private PooledDriver create() {
+        try {
+            EmergyaWebDriver driver = config.createDriver();
+            if (driver != null) {
+                return new PooledDriver(driver);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error creating a pooled driver", e);
+        }
+        size.decrementAndGet();
+        return null;
+    }
+
+    /**
+     * Cleans the state of a driver: extra windows, cookies and web storage,
+     * and goes back to the login URL.
+     *
+     * @param pooled
+     *            driver to be cleaned
+     * @return true if the driver was cleaned successfully
+     */
+    private boolean reset(PooledDriver pooled) {
+        EmergyaWebDriver driver = pooled.driver;
+        try {
+            for (String handle : driver.getWindowHandles()) {
+                if (!handle.equals(pooled.mainWindowHandle)) {
+                    driver.switchTo().window(handle);
+                    driver.close();
+                }
+            }
+            driver.switchTo().window(pooled.mainWindowHandle);
+
+            String loginURL = config.getLoginURL();
+            String currentUrl = driver.getCurrentUrl();
+            boolean sameOrigin = currentUrl != null && config.getEnvironment() != null
+                    && currentUrl.startsWith(config.getEnvironment());
+
+            clearSessionData(driver);
+            driver.get(loginURL);
+            if (!sameOrigin) {
+                // the previous page was in other domain, so the cookies and
+                // storage of the application are removed now
+                clearSessionData(driver);
+                driver.navigate().refresh();
+            }
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Error cleaning a pooled driver: " + e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Removes cookies and web storage of the current page.
+     *
+     * @param driver
+     *            to be cleaned
+     */
+    private void clearSessionData(EmergyaWebDriver driver) {
+        driver.manage().deleteAllCookies();
+        try {
+            driver.executeJavaScript(CLEAR_STORAGE_SCRIPT);
+        } catch (RuntimeException e) {
+            // pages like about:blank don't allow access to the storage
+            log.info("Web storage couldn't be cleared: " + e.toString());
+        }
+    }
+
+    /**
+     * Quits a driver and frees its slot.
+     *
+     * @param pooled
+     *            driver to be discarded
+     */
+    private void discard(PooledDriver pooled) {
+        quitQuietly(pooled.driver);
+        size.decrementAndGet();
+    }
+
+    /**
+     * Quits a driver ignoring the errors.
+     *
+     * @param driver
+     *            to quit
+     */
+    private void quitQuietly(EmergyaWebDriver driver) {
+        if (driver != null) {
+            try {
+                driver.quit();
+            } catch (RuntimeException e) {
+                log.warn("Error quitting a driver: " + e.toString());
+            }
+        }
+    }
+
+    /**
+     * Driver with its pool related data.
+     */
+    private static class PooledDriver {
+
+        private final EmergyaWebDriver driver;
+        private final String mainWindowHandle;
+        private final long createdAt = System.currentTimeMillis();
+        private int uses = 0;
+
+        PooledDriver(EmergyaWebDriver driver) {
+            this.driver = driver;
+            this.mainWindowHandle = driver.getWindowHandle();
+        }
+    }
+}
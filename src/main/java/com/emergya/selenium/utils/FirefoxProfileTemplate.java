@@ -0,0 +1,107 @@
+package com.emergya.selenium.utils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.firefox.FirefoxProfile;
+
+/**
+ * Firefox profile preferences calculated once per JVM. The remote sessions
+ * reuse the profile encoded the first time, which is the expensive part. The
+ * local sessions still get a new profile each, since the local driver writes
+ * it to a new directory for every session anyway.
+ */
+public class FirefoxProfileTemplate {
+
+    /**
+     * Logger class initialization.
+     */
+    private static final Logger log = Logger.getLogger(FirefoxProfileTemplate.class);
+
+    /**
+     * Preferences of the profile.
+     */
+    private final Map<String, Object> preferences;
+
+    /**
+     * Native events flag of the profile.
+     */
+    private final boolean enableNativeEvents;
+
+    /**
+     * Encoded profile (zipped and base64) to be sent to remote servers.
+     */
+    private volatile String encodedProfile;
+
+    /**
+     * Constructor
+     *
+     * @param preferences
+     *            of the profile. Allowed values: String, Boolean and Integer
+     * @param enableNativeEvents
+     *            native events flag
+     */
+    public FirefoxProfileTemplate(Map<String, Object> preferences, boolean enableNativeEvents) {
+        this.preferences = Collections.unmodifiableMap(new LinkedHashMap<String, Object>(preferences));
+        this.enableNativeEvents = enableNativeEvents;
+    }
+
+    /**
+     * Creates a new profile with the preferences of the template. It's not
+     * cached: a profile can't be shared by several local sessions, and
+     * setting the preferences in memory is cheap.
+     *
+     * @return a new profile to be used by a single session
+     */
+    public FirefoxProfile newProfile() {
+        FirefoxProfile profile = new FirefoxProfile();
+        profile.setEnableNativeEvents(enableNativeEvents);
+
+        for (Map.Entry<String, Object> preference : preferences.entrySet()) {
+            Object value = preference.getValue();
+            if (value instanceof Boolean) {
+                profile.setPreference(preference.getKey(), (Boolean) value);
+            } else if (value instanceof Integer) {
+                profile.setPreference(preference.getKey(), (Integer) value);
+            } else {
+                profile.setPreference(preference.getKey(), String.valueOf(value));
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Returns the profile zipped and encoded as it's sent to a remote server.
+     * It's encoded just once, so every remote session reuses it.
+     *
+     * @return the encoded profile
+     */
+    public String getEncodedProfile() {
+        if (encodedProfile == null) {
+            synchronized (this) {
+                if (encodedProfile == null) {
+                    try {
+                        encodedProfile = newProfile().toJson();
+                        log.info("Firefox profile encoded: " + encodedProfile.length() + " bytes");
+                    } catch (IOException e) {
+                        throw new WebDriverException("The Firefox profile couldn't be encoded", e);
+                    }
+                }
+            }
+        }
+        return encodedProfile;
+    }
+
+    /**
+     * Returns the preferences of the template.
+     *
+     * @return unmodifiable map of preferences
+     */
+    public Map<String, Object> getPreferences() {
+        return preferences;
+    }
+}
@@ -2,20 +2,31 @@ package com.emergya.selenium.utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Properties;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.Keys;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.firefox.FirefoxProfile;
+import org.openqa.selenium.WebDriverException;
 
-import com.emergya.selenium.drivers.EmergyaChromeDriver;
-import com.emergya.selenium.drivers.EmergyaFirefoxDriver;
-import com.emergya.selenium.drivers.EmergyaIEDriver;
+import com.emergya.selenium.drivers.EmergyaDriverFactory;
 import com.emergya.selenium.drivers.EmergyaWebDriver;
+import com.emergya.selenium.drivers.ObserverWaits;
+import com.emergya.selenium.drivers.SharedDriverServices;
 
 /**
  * Initializes properties and driver
@@ -25,6 +36,18 @@ import com.emergya.selenium.drivers.EmergyaWebDriver;
  */
 public class Initialization {
 
+    /**
+     * Script to know when the window has been resized. It's resolved with the
+     * resize event or when the window has already the expected size.
+     */
+    private static final String WAIT_FOR_RESIZE_SCRIPT = "var callback = arguments[arguments.length - 1];"
+            + " var width = arguments[0], height = arguments[1];"
+            + " var resized = function() { return width > 0"
+            + " ? (window.outerWidth == width && window.outerHeight == height)"
+            + " : (window.outerWidth >= screen.availWidth && window.outerHeight >= screen.availHeight); };"
+            + " if (resized()) { callback(true); return; }"
+            + " window.addEventListener('resize', function() { callback(true); });";
+
     private String properties;
     private String browser;
     private String context;
@@ -38,14 +61,62 @@ public class Initialization {
     private String downloadPath;
     private String webdriverChrome;
     private String webdriverIE;
-    private int widthBeforeMaximize;
-    private int widthAfterMaximize;
-    private int heightBeforeMaximize;
-    private int heightAfterMaximize;
-    private static Initialization instance = null;
+    private boolean useDriverPool;
+    private int driverPoolMinSize;
+    private int driverPoolMaxSize;
+    private int driverPoolMaxUses;
+    private long driverPoolAcquireTimeout;
+    private int driverPrewarm;
+    private String windowMode;
+    private int windowWidth;
+    private int windowHeight;
+    private long windowResizeTimeout;
+    private boolean headless;
+    private boolean sharedDriverService;
+    private String remoteHubUrls;
+    private String remoteNodeSelection;
+    private String remoteBrowser;
+    private long sessionSnapshotMaxAge;
+    private long sessionRestoreCheckTimeout;
+    private long driverMaxAge;
+    private long driverMaxCommands;
+    private long driverMaxHeap;
+    private long driverHealthCheckTimeout;
+    private Poller poller;
+    private boolean adaptivePolling;
+    private AdaptivePoller adaptivePoller;
+    private String waitEngine;
+    private long testDeadline;
+    private int asyncWaitThreads;
+    private WaitTimeouts waitTimeouts;
+    private FirefoxProfileTemplate firefoxProfileTemplate;
+    private volatile EmergyaDriverFactory driverFactory;
+    private DriverPool driverPool;
+    private static volatile Initialization instance = null;
     private static Logger log = Logger.getLogger(Initialization.class);
 
-    EmergyaWebDriver driver;
+    /**
+     * Driver used by each thread, so the tests can be run in parallel.
+     */
+    private final ThreadLocal<EmergyaWebDriver> driver = new ThreadLocal<EmergyaWebDriver>();
+
+    /**
+     * Download directory of each driver, so the parallel tests don't clean
+     * the files downloaded by the others.
+     */
+    private final Map<EmergyaWebDriver, String> driverDownloadPaths = Collections
+            .synchronizedMap(new WeakHashMap<EmergyaWebDriver, String>());
+
+    /**
+     * Download directory of the driver being created by each thread, to be
+     * set by the factories in the browser preferences.
+     */
+    private final ThreadLocal<String> newDriverDownloadPath = new ThreadLocal<String>();
+
+    /**
+     * Number of download directories created.
+     */
+    private final AtomicInteger downloadDirectories = new AtomicInteger();
 
     /**
      * Singleton pattern
@@ -54,7 +125,11 @@ public class Initialization {
      */
     public static Initialization getInstance() {
         if (instance == null) {
-            instance = new Initialization();
+            synchronized (Initialization.class) {
+                if (instance == null) {
+                    instance = new Initialization();
+                }
+            }
         }
         return instance;
     }
@@ -117,6 +192,75 @@ public class Initialization {
             webdriverChrome = prop.getProperty("webdriverChrome", "files/software/chromedriver");
             webdriverIE = prop.getProperty("webdriverIE", "files/software/IEDriverServer.exe");
 
+            // Driver pool
+            useDriverPool = "true".equals(prop.getProperty("useDriverPool", "false"));
+            driverPoolMinSize = getIntProperty(prop, "driverPoolMinSize", 1);
+            driverPoolMaxSize = getIntProperty(prop, "driverPoolMaxSize", 1);
+            driverPoolMaxUses = getIntProperty(prop, "driverPoolMaxUses", 20);
+            driverPoolAcquireTimeout = getIntProperty(prop, "driverPoolAcquireTimeout", 300);
+            driverPrewarm = getIntProperty(prop, "driverPrewarm", 0);
+
+            // Health of the pooled drivers: max age (seconds), commands and
+            // JS heap (MB) before recycling them (0 for no limit) and
+            // milliseconds for the liveness probe (0 to disable it)
+            driverMaxAge = getIntProperty(prop, "driverMaxAge", 0);
+            driverMaxCommands = getIntProperty(prop, "driverMaxCommands", 0);
+            driverMaxHeap = getIntProperty(prop, "driverMaxHeap", 0);
+            driverHealthCheckTimeout = getIntProperty(prop, "driverHealthCheckTimeout", 2000);
+
+            // Window size: maximize, size, legacy (F11) or none
+            windowMode = prop.getProperty("windowMode", "maximize").trim();
+            windowWidth = getIntProperty(prop, "windowWidth", 1920);
+            windowHeight = getIntProperty(prop, "windowHeight", 1080);
+            windowResizeTimeout = getIntProperty(prop, "windowResizeTimeout", 2000);
+
+            // Headless execution (just Chrome), using windowWidth x
+            // windowHeight as viewport
+            headless = "true".equals(prop.getProperty("headless", "false"));
+
+            // One chromedriver/IEDriverServer process per thread for all its
+            // sessions
+            sharedDriverService = "true".equals(prop.getProperty("sharedDriverService", "false"));
+
+            // Remote execution (browser=Remote): comma separated hub URLs,
+            // node selection (roundRobin or leastLoaded) and remote browser
+            remoteHubUrls = prop.getProperty("remoteHubUrls", "http://localhost:4444/wd/hub");
+            remoteNodeSelection = prop.getProperty("remoteNodeSelection", "roundRobin").trim();
+            remoteBrowser = prop.getProperty("remoteBrowser", "Firefox").trim();
+
+            // Session snapshots: seconds a captured session is reused (0 for
+            // no limit) and seconds to wait for the logged in check
+            sessionSnapshotMaxAge = getIntProperty(prop, "sessionSnapshotMaxAge", 0);
+            sessionRestoreCheckTimeout = getIntProperty(prop, "sessionRestoreCheckTimeout", 5);
+
+            // Polling of the waits: first and maximum interval (milliseconds)
+            // and backoff factor between checks
+            poller = new Poller(getIntProperty(prop, "pollInterval", 50),
+                    getIntProperty(prop, "pollMaxInterval", 500), getDoubleProperty(prop, "pollBackoff", 1.5));
+
+            // Intervals learned from the latency of each selector, never
+            // shorter than pollMinInterval (milliseconds)
+            adaptivePolling = "true".equals(prop.getProperty("adaptivePolling", "true"));
+            adaptivePoller = new AdaptivePoller(poller, getIntProperty(prop, "pollMinInterval", 10));
+
+            // Wait engine: poll (WebDriver commands) or observer
+            // (MutationObserver injected in the page)
+            waitEngine = prop.getProperty("waitEngine", "poll").trim();
+
+            // Seconds shared by all the waits of a test (0 for no limit)
+            testDeadline = getIntProperty(prop, "testDeadline", 0);
+
+            // Threads of the scheduler shared by the asynchronous waits
+            asyncWaitThreads = getIntProperty(prop, "asyncWaitThreads", 2);
+
+            // Timeouts derived from the durations recorded in waitTimingsFile:
+            // p99 x autoTimeoutFactor between autoTimeoutMin and
+            // autoTimeoutMax seconds, once a key has autoTimeoutMinSamples
+            waitTimeouts = new WaitTimeouts("true".equals(prop.getProperty("autoTimeouts", "false").trim()),
+                    prop.getProperty("waitTimingsFile", ""), getDoubleProperty(prop, "autoTimeoutFactor", 3),
+                    getIntProperty(prop, "autoTimeoutMin", 2), getIntProperty(prop, "autoTimeoutMax", 20),
+                    getIntProperty(prop, "autoTimeoutMinSamples", 20));
+
             File file = new File(this.getDownloadPath());
             if (!file.exists()) {
                 file.mkdir();
@@ -132,101 +276,413 @@ public class Initialization {
 
     // **** Driver initialization method ****//
     public EmergyaWebDriver initialize() {
-        log.info("[log-Properties] " + this.getClass().getName() + "- Start initialize test");
-
-        EmergyaWebDriver tmpDriver = null;
-
-        // Driver initialization
-        if (browser.equalsIgnoreCase("Firefox")) {
-            FirefoxProfile firefoxProfile = new FirefoxProfile();
-
-            firefoxProfile.setPreference("browser.download.manager.focusWhenStarting", true);
-            firefoxProfile.setEnableNativeEvents(true);
-            firefoxProfile.setPreference("browser.download.folderList", 2);
-            firefoxProfile.setPreference("browser.download.manager.showWhenStarting", false);
-            firefoxProfile.setPreference("browser.download.dir", this.getDownloadPath());
+        boolean timed = StartupTimings.begin(StartupTimings.TEST);
+        try {
+            EmergyaWebDriver newDriver = this.createDriver();
+            // bound first, so just its download directory is cleaned
+            driver.set(newDriver);
+            long start = System.nanoTime();
+            this.cleanDownloadDirectory();
+            StartupTimings.phase("cleanDownloads", start);
+            return newDriver;
+        } finally {
+            if (timed) {
+                StartupTimings.end();
+            }
+        }
+    }
 
-            File dir = new File(this.getDownloadPath());
-            if (dir.isDirectory()) {
-                File[] files = dir.listFiles();
+    /**
+     * Creates and prepares a new driver without binding it to the current
+     * thread. It doesn't touch the download directory, so it can be called
+     * in background while other test is running. The duration of each phase
+     * is added to the {@link StartupTimings} record of the thread.
+     * 
+     * @return the new driver
+     */
+    EmergyaWebDriver createDriver() {
+        log.info("[log-Properties] " + this.getClass().getName() + "- Start initialize test");
 
-                for (File file : files) {
-                    if (file.isFile()) {
-                        file.delete();
-                    }
+        boolean timed = StartupTimings.begin(StartupTimings.BACKGROUND);
+        try {
+            // Driver initialization
+            EmergyaDriverFactory factory = this.getDriverFactory();
+            StartupRecord record = StartupTimings.current();
+            long nestedBefore = record.getPhasesTotal();
+            long start = System.nanoTime();
+            String downloadDirectory = this.newDownloadDirectory();
+            EmergyaWebDriver tmpDriver;
+            newDriverDownloadPath.set(downloadDirectory);
+            try {
+                tmpDriver = factory.createDriver(this);
+            } finally {
+                newDriverDownloadPath.remove();
+            }
+            driverDownloadPaths.put(tmpDriver, downloadDirectory);
+            // the phases recorded by the factory (driver service, profile...)
+            // are not counted twice
+            record.add("session", System.nanoTime() - start - (record.getPhasesTotal() - nestedBefore));
+            boolean sizedAtLaunch = factory.isWindowSizedAtLaunch(this);
+
+            // Common functions
+            EmergyaWebDriver driver = tmpDriver;
+
+            if (windowMode.equalsIgnoreCase("legacy")) {
+                start = System.nanoTime();
+                driver.get(loginURL);
+                StartupTimings.phase("navigate", start);
+                start = System.nanoTime();
+                this.legacyMaximize(driver);
+                StartupTimings.phase("resize", start);
+            } else {
+                if (!sizedAtLaunch) {
+                    start = System.nanoTime();
+                    this.resizeWindow(driver);
+                    StartupTimings.phase("resize", start);
                 }
+                start = System.nanoTime();
+                driver.get(loginURL);
+                StartupTimings.phase("navigate", start);
             }
 
-            String mimeTypes = getMimeTypes();
-
-            // adding mimetypes
-            firefoxProfile.setPreference("browser.helperApps.neverAsk.saveToDisk", mimeTypes);
-            // forcing the downloads
-            firefoxProfile.setPreference("browser.helperApps.neverAsk.openFile", mimeTypes);
-            firefoxProfile.setPreference("browser.helperApps.alwaysAsk.force", false);
-
-            firefoxProfile.setPreference("pdfjs.disabled", true);
+            log.info("[log-Properties] " + this.getClass().getName() + "- End initialize test");
 
-            tmpDriver = new EmergyaFirefoxDriver(firefoxProfile);
-
-        } else if (browser.equalsIgnoreCase("Chrome")) {
-            ChromeOptions options = new ChromeOptions();
-            options.addArguments("--start-maximized");
+            return driver;
+        } finally {
+            if (timed) {
+                StartupTimings.end();
+            }
+        }
+    }
 
-            if (os.equalsIgnoreCase("windows")) {
-                System.setProperty("webdriver.chrome.driver", webdriverChrome);
-            } else {
-                System.setProperty("webdriver.chrome.driver", webdriverChrome + ".exe");
+    /**
+     * Returns the factory of the configured browser, looking for it the first
+     * time between the registered {@link EmergyaDriverFactory} services.
+     * 
+     * @return the driver factory
+     */
+    private EmergyaDriverFactory getDriverFactory() {
+        if (driverFactory == null) {
+            synchronized (this) {
+                if (driverFactory == null) {
+                    ClassLoader loader = Thread.currentThread().getContextClassLoader();
+                    for (EmergyaDriverFactory factory : ServiceLoader.load(EmergyaDriverFactory.class, loader)) {
+                        if (factory.supports(browser, os)) {
+                            log.info("Using the driver factory " + factory.getClass().getName());
+                            driverFactory = factory;
+                            break;
+                        }
+                    }
+                    if (driverFactory == null) {
+                        throw new WebDriverException("There is no driver factory for the browser " + browser
+                                + " in " + os);
+                    }
+                }
             }
+        }
+        return driverFactory;
+    }
 
-            tmpDriver = new EmergyaChromeDriver(options);
-        } else if (browser.equalsIgnoreCase("IE") && os.equalsIgnoreCase("windows")) {
-            System.setProperty("webdriver.ie.driver", webdriverIE);
-            tmpDriver = new EmergyaIEDriver();
+    /**
+     * Applies the configured window size (windowMode property) with a single
+     * command and waits for the resize event of the page.
+     * 
+     * @param driver
+     *            to be resized
+     */
+    private void resizeWindow(EmergyaWebDriver driver) {
+        int width = 0, height = 0;
+
+        if (windowMode.equalsIgnoreCase("size")) {
+            width = windowWidth;
+            height = windowHeight;
+            driver.manage().window().setSize(new Dimension(width, height));
+        } else if (windowMode.equalsIgnoreCase("maximize")) {
+            driver.manage().window().maximize();
+        } else {
+            log.info("The window is not resized. Window mode: " + windowMode);
+            return;
         }
 
-        // Common functions
-        driver = tmpDriver;
+        try {
+            // known by the observer waits, which set a longer one if needed
+            ObserverWaits.setScriptTimeout(driver, windowResizeTimeout);
+            ((JavascriptExecutor) driver).executeAsyncScript(WAIT_FOR_RESIZE_SCRIPT, width, height);
+        } catch (RuntimeException e) {
+            // the resize command is synchronous in most of the drivers, so
+            // the initialization continues
+            log.warn("The resize of the window couldn't be confirmed: " + e.toString());
+        }
+    }
 
+    /**
+     * Maximizes the window sending F11 to the page. This was the default
+     * behaviour and now it's used just with windowMode=legacy.
+     * 
+     * @param driver
+     *            to be maximized
+     */
+    private void legacyMaximize(EmergyaWebDriver driver) {
         log.info("Browser initialized with dimensions: " + driver.manage().window().getSize().getWidth() + "px X "
                 + driver.manage().window().getSize().getHeight() + "px");
 
-        widthBeforeMaximize = driver.manage().window().getSize().getWidth();
-        heightBeforeMaximize = driver.manage().window().getSize().getHeight();
-
-        driver.get(loginURL);
+        int widthBeforeMaximize = driver.manage().window().getSize().getWidth();
+        int heightBeforeMaximize = driver.manage().window().getSize().getHeight();
 
-        tmpDriver.findElement(By.tagName("body")).sendKeys(Keys.F11);
+        driver.findElement(By.tagName("body")).sendKeys(Keys.F11);
 
         driver.sleep(1);
 
-        widthAfterMaximize = driver.manage().window().getSize().getWidth();
-        heightAfterMaximize = driver.manage().window().getSize().getHeight();
+        int widthAfterMaximize = driver.manage().window().getSize().getWidth();
+        int heightAfterMaximize = driver.manage().window().getSize().getHeight();
 
         if ((widthBeforeMaximize == widthAfterMaximize) && (heightBeforeMaximize == heightAfterMaximize)) {
             log.info("Not maximized first time...try again");
 
             driver.sleep(1);
 
-            tmpDriver.findElement(By.tagName("body")).sendKeys(Keys.F11);
+            driver.findElement(By.tagName("body")).sendKeys(Keys.F11);
 
             driver.sleep(2);
         }
 
-        this.cleanDownloadDirectory();
-
         log.info("Browser resized with dimensions: " + driver.manage().window().getSize().getWidth() + "px X "
                 + driver.manage().window().getSize().getHeight() + "px");
+    }
+
+    // **** Driver pool methods section ****//
+    /**
+     * Returns a driver for a test. If the driver pool or the pre-warming is
+     * enabled, a ready session is taken from the pool, otherwise a new driver
+     * is initialized.
+     * 
+     * @return the driver to be used
+     */
+    public EmergyaWebDriver acquireDriver() {
+        if (isPooled()) {
+            boolean timed = StartupTimings.begin(StartupTimings.TEST);
+            try {
+                long start = System.nanoTime();
+                StartupRecord record = StartupTimings.current();
+                long nestedBefore = record.getPhasesTotal();
+                EmergyaWebDriver pooled = getDriverPool().acquire();
+                // waiting time, excluding the driver creation if the pool
+                // created it in this thread
+                record.add("poolAcquire", System.nanoTime() - start - (record.getPhasesTotal() - nestedBefore));
+                driver.set(pooled);
+                start = System.nanoTime();
+                this.cleanDownloadDirectory();
+                StartupTimings.phase("cleanDownloads", start);
+                return pooled;
+            } finally {
+                if (timed) {
+                    StartupTimings.end();
+                }
+            }
+        }
+        return this.initialize();
+    }
+
+    /**
+     * Returns the startup timing of the last driver acquired by the current
+     * thread.
+     * 
+     * @return the startup record or null if no driver was acquired
+     */
+    public StartupRecord getStartupRecord() {
+        return StartupTimings.getLastRecord();
+    }
+
+    /**
+     * Returns the driver acquired by the current thread.
+     * 
+     * @return the driver of the current thread or null if there is no one
+     */
+    public EmergyaWebDriver getDriver() {
+        return driver.get();
+    }
+
+    /**
+     * Finishes the use of a driver. If the driver pool is enabled, the driver
+     * is cleaned and returned to the pool, otherwise it is quit.
+     * 
+     * @param toRelease
+     *            driver returned by {@link #acquireDriver()}
+     */
+    public void releaseDriver(EmergyaWebDriver toRelease) {
+        if (toRelease == null) {
+            return;
+        }
+        if (toRelease == driver.get()) {
+            driver.remove();
+        }
+        if (isPooled()) {
+            getDriverPool().release(toRelease);
+        } else {
+            toRelease.manage().deleteAllCookies();
+            toRelease.quit();
+        }
+    }
+
+    /**
+     * Starts launching in background the drivers to be used by the next
+     * tests, if the pre-warming is enabled.
+     */
+    public void startDriverPrewarm() {
+        if (driverPrewarm > 0) {
+            getDriverPool();
+        }
+    }
+
+    /**
+     * Quits all the drivers of the pool, if it was created.
+     */
+    public synchronized void shutdownDriverPool() {
+        if (driverPool != null) {
+            driverPool.shutdown();
+            driverPool = null;
+        }
+    }
+
+    /**
+     * Stops the shared chromedriver/IEDriverServer services. The drivers using
+     * them must be quit before.
+     */
+    public void stopDriverServices() {
+        if (sharedDriverService) {
+            SharedDriverServices.stopAll();
+        }
+    }
+
+    /**
+     * Returns the driver pool, creating it the first time.
+     * 
+     * @return the driver pool
+     */
+    private synchronized DriverPool getDriverPool() {
+        if (driverPool == null) {
+            DriverHealthCheck healthCheck = new DriverHealthCheck(driverMaxAge, driverMaxCommands, driverMaxHeap,
+                    driverHealthCheckTimeout);
+            if (useDriverPool) {
+                driverPool = new DriverPool(this, driverPoolMinSize, driverPoolMaxSize, driverPoolMaxUses,
+                        driverPoolAcquireTimeout, driverPrewarm, healthCheck);
+            } else {
+                // just pre-warming: every driver is used by one test
+                driverPool = new DriverPool(this, 0, Integer.MAX_VALUE, 1, driverPoolAcquireTimeout,
+                        driverPrewarm, healthCheck);
+            }
+            driverPool.fill();
+        }
+        return driverPool;
+    }
+
+    /**
+     * Checks if the drivers are managed by the driver pool.
+     * 
+     * @return true if the pool or the pre-warming are enabled
+     */
+    private boolean isPooled() {
+        return useDriverPool || driverPrewarm > 0;
+    }
+
+    /**
+     * Reads an integer property, using the default value if it's missing or
+     * it isn't a number.
+     * 
+     * @param prop
+     *            properties read
+     * @param name
+     *            of the property
+     * @param defaultValue
+     *            to be used
+     * @return the value of the property
+     */
+    private int getIntProperty(Properties prop, String name, int defaultValue) {
+        String value = prop.getProperty(name);
+        int result = defaultValue;
+        if (value != null) {
+            try {
+                result = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("The property " + name + " is not a number: " + value + ". Using " + defaultValue);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads a decimal property, using the default value if it's missing or
+     * it isn't a number.
+     * 
+     * @param prop
+     *            properties read
+     * @param name
+     *            of the property
+     * @param defaultValue
+     *            to be used
+     * @return the value of the property
+     */
+    private double getDoubleProperty(Properties prop, String name, double defaultValue) {
+        String value = prop.getProperty(name);
+        double result = defaultValue;
+        if (value != null) {
+            try {
+                result = Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("The property " + name + " is not a number: " + value + ". Using " + defaultValue);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the Firefox profile template, building it the first time.
+     * 
+     * @return the Firefox profile template
+     */
+    public synchronized FirefoxProfileTemplate getFirefoxProfileTemplate() {
+        if (firefoxProfileTemplate == null) {
+            Map<String, Object> preferences = new LinkedHashMap<String, Object>();
+
+            preferences.put("browser.download.manager.focusWhenStarting", true);
+            preferences.put("browser.download.folderList", 2);
+            preferences.put("browser.download.manager.showWhenStarting", false);
+            // each session sets its own directory, see getNewDriverDownloadPath
+            preferences.put("browser.download.dir", downloadPath);
+
+            String mimeTypes = getMimeTypes();
+
+            // adding mimetypes
+            preferences.put("browser.helperApps.neverAsk.saveToDisk", mimeTypes);
+            // forcing the downloads
+            preferences.put("browser.helperApps.neverAsk.openFile", mimeTypes);
+            preferences.put("browser.helperApps.alwaysAsk.force", false);
 
-        log.info("[log-Properties] " + this.getClass().getName() + "- End initialize test");
+            preferences.put("pdfjs.disabled", true);
 
-        return driver;
+            firefoxProfileTemplate = new FirefoxProfileTemplate(preferences, true);
+        }
+        return firefoxProfileTemplate;
     }
 
     /**
-     * It returns all the mime types to be used in the downloads.
+     * It returns all the mime types to be used in the downloads, without
+     * spaces nor duplicated entries.
      */
     private String getMimeTypes() {
+        Set<String> uniqueMimeTypes = new LinkedHashSet<String>();
+        for (String mimeType : getMimeTypesList().split(",")) {
+            if (StringUtils.isNotBlank(mimeType)) {
+                uniqueMimeTypes.add(mimeType.trim());
+            }
+        }
+        return StringUtils.join(uniqueMimeTypes, ",");
+    }
+
+    /**
+     * It returns the list of mime types to be used in the downloads.
+     */
+    private String getMimeTypesList() {
         String mimetypes = "application/x-jar, application/application/vnd.android.package-archive, application/msword, application/x-rar-compressed,"
                 + " application/octet-stream, application/csv, application/excel, application/vnd.ms-excel, application/x-excel, application/x-msexcel, text/csv, image/jpeg, application/zip,"
                 + " video/x-msvideo, image/png, application/pdf, text/xml, text/html, application/vnd.ms-powerpoint, application/vnd.openxmlformats-officedocument.presentationml.presentation,"
@@ -347,7 +803,7 @@ public class Initialization {
                 + " application/rls-services+xml, aplication/resource-lists-diff+xml, application/xslt+xml, application/xop+xml, application/x-xpinstall, application/xspf+xml, "
                 + "application/vnd.mozilla.xul+xml, chemical/x-xyz, text/yaml, application/yang, application/yin+xml, application/vnd.ul, application/zip, "
                 + "application/vnd.handheld-entertainment+xml, application/vnd.zzazz.deck+xml";
-        return mimetypes.replaceAll(" ", "");
+        return mimetypes;
     }
 
     // **** Getters methods section ****//
@@ -387,8 +843,115 @@ public class Initialization {
         return saveVideoForPassed;
     }
 
+    /**
+     * Returns the download directory of the driver of the current thread, or
+     * the base download directory if the thread doesn't have a driver.
+     * 
+     * @return the download path, ending with the file separator
+     */
     public String getDownloadPath() {
-        return downloadPath;
+        EmergyaWebDriver current = driver.get();
+        String path = current != null ? driverDownloadPaths.get(current) : null;
+        return path != null ? path : downloadPath;
+    }
+
+    /**
+     * Returns the download directory of the driver being created by the
+     * current thread, to be set by the factories in the browser preferences.
+     * 
+     * @return the download path, ending with the file separator
+     */
+    public String getNewDriverDownloadPath() {
+        String path = newDriverDownloadPath.get();
+        return path != null ? path : downloadPath;
+    }
+
+    public String getWebdriverChrome() {
+        return webdriverChrome;
+    }
+
+    public String getWebdriverIE() {
+        return webdriverIE;
+    }
+
+    public boolean isUseDriverPool() {
+        return useDriverPool;
+    }
+
+    public int getDriverPrewarm() {
+        return driverPrewarm;
+    }
+
+    public boolean isSharedDriverService() {
+        return sharedDriverService;
+    }
+
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    public String getWindowMode() {
+        return windowMode;
+    }
+
+    public int getWindowWidth() {
+        return windowWidth;
+    }
+
+    public int getWindowHeight() {
+        return windowHeight;
+    }
+
+    public String getRemoteHubUrls() {
+        return remoteHubUrls;
+    }
+
+    public String getRemoteNodeSelection() {
+        return remoteNodeSelection;
+    }
+
+    public String getRemoteBrowser() {
+        return remoteBrowser;
+    }
+
+    public long getSessionSnapshotMaxAge() {
+        return sessionSnapshotMaxAge;
+    }
+
+    public long getSessionRestoreCheckTimeout() {
+        return sessionRestoreCheckTimeout;
+    }
+
+    public Poller getPoller() {
+        return poller;
+    }
+
+    public boolean isAdaptivePolling() {
+        return adaptivePolling;
+    }
+
+    public AdaptivePoller getAdaptivePoller() {
+        return adaptivePoller;
+    }
+
+    public String getWaitEngine() {
+        return waitEngine;
+    }
+
+    public boolean isObserverWaitEngine() {
+        return "observer".equalsIgnoreCase(waitEngine);
+    }
+
+    public long getTestDeadline() {
+        return testDeadline;
+    }
+
+    public int getAsyncWaitThreads() {
+        return asyncWaitThreads;
+    }
+
+    public WaitTimeouts getWaitTimeouts() {
+        return waitTimeouts;
     }
 
     // **** Download methods section ****//
@@ -411,7 +974,47 @@ public class Initialization {
     }
 
     /**
-     * Cleans the download directory.
+     * Waits in the {@link WaitScheduler} until a file is completely downloaded:
+     * it exists and the browser doesn't have a partial file for it (.part or
+     * .crdownload).
+     * 
+     * @param filename
+     *            the name of the file
+     * @param seconds
+     *            to wait as maximum
+     * @return future with the downloaded file, or null if it wasn't
+     *         downloaded in time
+     */
+    public CompletableFuture<File> waitForDownloadAsync(final String filename, long seconds) {
+        final String path = this.getDownloadPath() + filename;
+        return poller.pollAsync(new Poller.Probe<File>() {
+            @Override
+            public File probe() {
+                File file = new File(path);
+                if (file.exists() && !new File(path + ".part").exists() && !new File(path + ".crdownload").exists()) {
+                    return file;
+                }
+                return null;
+            }
+        }, seconds * 1000);
+    }
+
+    /**
+     * Creates a download directory for a new driver, inside the base one.
+     * 
+     * @return the download path, ending with the file separator
+     */
+    private String newDownloadDirectory() {
+        String path = downloadPath + "driver-" + downloadDirectories.incrementAndGet() + File.separator;
+        File f = new File(path);
+        if (!f.exists() && !f.mkdirs()) {
+            log.warn("The download directory " + path + " couldn't be created");
+        }
+        return path;
+    }
+
+    /**
+     * Cleans the download directory of the driver of the current thread.
      */
     public void cleanDownloadDirectory() {
         File f = new File(this.getDownloadPath());
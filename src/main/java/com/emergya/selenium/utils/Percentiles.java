@@ -0,0 +1,56 @@
+package com.emergya.selenium.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Percentile calculation over recorded durations.
+ */
+public class Percentiles {
+
+    /**
+     * Private constructor, just static methods.
+     */
+    private Percentiles() {
+    }
+
+    /**
+     * Sorts the values to calculate percentiles with
+     * {@link #percentile(long[], double)}.
+     *
+     * @param values
+     *            recorded values
+     * @return sorted array of values
+     */
+    public static long[] sorted(Collection<Long> values) {
+        long[] sorted = new long[values.size()];
+        int i = 0;
+        for (Long value : values) {
+            if (i == sorted.length) {
+                // the collection grew while it was copied
+                break;
+            }
+            sorted[i++] = value;
+        }
+        sorted = Arrays.copyOf(sorted, i);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Returns a percentile of sorted values (nearest rank method).
+     *
+     * @param sorted
+     *            values in ascending order
+     * @param percentile
+     *            between 0 and 100
+     * @return the value of the percentile or 0 if there are no values
+     */
+    public static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil((percentile / 100.0) * sorted.length);
+        return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+    }
+}
@@ -0,0 +1,181 @@
+package com.emergya.selenium.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polling engine for the waits. The condition is checked, and while it isn't
+ * satisfied the thread sleeps for the current interval, which grows with the
+ * backoff factor up to the maximum interval. The timeout is honoured precisely:
+ * the last sleep is cut to the deadline and the condition is checked once more
+ * at the deadline. The asynchronous variant runs the checks in the
+ * {@link WaitScheduler}, without blocking the caller.
+ */
+public class Poller {
+
+    /**
+     * Check of a polled condition.
+     *
+     * @param <T>
+     *            type of the result
+     */
+    public interface Probe<T> {
+
+        /**
+         * Checks the condition.
+         *
+         * @return the result, or null or false if the condition isn't
+         *         satisfied yet
+         */
+        T probe();
+    }
+
+    /**
+     * First interval between checks, in milliseconds.
+     */
+    private final long initialInterval;
+
+    /**
+     * Maximum interval between checks, in milliseconds.
+     */
+    private final long maxInterval;
+
+    /**
+     * Factor applied to the interval after each check.
+     */
+    private final double backoff;
+
+    /**
+     * Constructor
+     *
+     * @param initialInterval
+     *            first interval between checks, in milliseconds
+     * @param maxInterval
+     *            maximum interval between checks, in milliseconds
+     * @param backoff
+     *            factor applied to the interval after each check, 1 for a
+     *            fixed interval
+     */
+    public Poller(long initialInterval, long maxInterval, double backoff) {
+        this.initialInterval = Math.max(1, initialInterval);
+        this.maxInterval = Math.max(this.initialInterval, maxInterval);
+        this.backoff = Math.max(1.0, backoff);
+    }
+
+    /**
+     * Checks a condition until it's satisfied or the timeout expires. The
+     * timeout is cut to the active {@link Deadline} of the thread. The
+     * exceptions thrown by the probe are propagated to the caller.
+     *
+     * @param probe
+     *            condition to be checked
+     * @param timeout
+     *            in milliseconds
+     * @return the first result of the probe that is not null or false, or null
+     *         if the timeout expired
+     */
+    public <T> T poll(Probe<T> probe, long timeout) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, Deadline.clamp(timeout)));
+        double interval = initialInterval;
+
+        while (true) {
+            T result = probe.probe();
+            if (result != null && !Boolean.FALSE.equals(result)) {
+                return result;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos((long) interval)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            interval = Math.min(maxInterval, interval * backoff);
+        }
+    }
+
+    /**
+     * Checks a condition in the {@link WaitScheduler} until it's satisfied or
+     * the timeout expires, with the same intervals as
+     * {@link #poll(Probe, long)}. The timeout is cut to the active
+     * {@link Deadline} of the calling thread.
+     *
+     * @param probe
+     *            condition to be checked, from the scheduler threads
+     * @param timeout
+     *            in milliseconds
+     * @return future with the first result of the probe that is not null or
+     *         false, or null if the timeout expired. It completes
+     *         exceptionally if the probe throws an exception, and cancelling
+     *         it stops the checks
+     */
+    public <T> CompletableFuture<T> pollAsync(final Probe<T> probe, long timeout) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, Deadline.clamp(timeout)));
+        final WaitScheduler scheduler = WaitScheduler.getInstance();
+
+        scheduler.getExecutor().execute(new Runnable() {
+            private double interval = initialInterval;
+
+            @Override
+            public void run() {
+                if (future.isDone()) {
+                    return;
+                }
+
+                try {
+                    T result = probe.probe();
+                    if (result != null && !Boolean.FALSE.equals(result)) {
+                        future.complete(result);
+                        return;
+                    }
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    future.complete(null);
+                    return;
+                }
+
+                scheduler.getExecutor().schedule(this,
+                        Math.min(remaining, TimeUnit.MILLISECONDS.toNanos((long) interval)), TimeUnit.NANOSECONDS);
+                interval = Math.min(maxInterval, interval * backoff);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Checks a boolean condition until it's true or the timeout expires.
+     *
+     * @param probe
+     *            condition to be checked
+     * @param timeout
+     *            in milliseconds
+     * @return true if the condition was satisfied before the timeout
+     */
+    public boolean await(Probe<Boolean> probe, long timeout) {
+        return poll(probe, timeout) != null;
+    }
+
+    public long getInitialInterval() {
+        return initialInterval;
+    }
+
+    public long getMaxInterval() {
+        return maxInterval;
+    }
+
+    public double getBackoff() {
+        return backoff;
+    }
+}
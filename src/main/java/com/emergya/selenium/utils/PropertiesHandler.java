@@ -5,14 +5,20 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 import org.apache.log4j.Logger;
 
 /**
- * Class to read the properties files
+ * Class to read the properties files. It can be shared by parallel tests: each
+ * file is read once, cached as an immutable map and looked up without locks
+ * with {@link #get(String, String)}.
  * 
  * @author Alejandro Gomez <agommor@gmail.com>
  * @contributor Ivan Bermudez <ibermudez@emergya.com>
@@ -25,26 +31,38 @@ public class PropertiesHandler {
     private static final Logger log = Logger.getLogger(PropertiesHandler.class);
 
     /**
-     * Properties cache.
+     * Properties cache, immutable maps by filename.
      */
-    private Map<String, Properties> properties;
+    private final ConcurrentMap<String, Map<String, String>> properties;
 
     /**
      * Instance of the PropertiesHandler class.
      */
-    private static PropertiesHandler instance = null;
+    private static volatile PropertiesHandler instance = null;
 
     /**
-     * Attribute to have control about which is the last read file.
+     * Attribute to have control about which is the last read file of each
+     * thread, for {@link #get(String)}.
      */
-    private String lastReadFile;
+    private final ThreadLocal<String> lastReadFile = new ThreadLocal<String>();
+
+    /**
+     * Reads a file that isn't cached yet, just once even if several threads
+     * ask for it at the same time.
+     */
+    private final Function<String, Map<String, String>> reader = new Function<String, Map<String, String>>() {
+        @Override
+        public Map<String, String> apply(String filename) {
+            log.info("There is no cached properties, reading them now from " + filename);
+            return read(filename);
+        }
+    };
 
     /**
      * Default constructor.
      */
     private PropertiesHandler() {
-        this.properties = new HashMap<String, Properties>();
-        this.lastReadFile = null;
+        this.properties = new ConcurrentHashMap<String, Map<String, String>>();
     }
 
     /**
@@ -55,13 +73,18 @@ public class PropertiesHandler {
     public static PropertiesHandler getInstance () {
         // singleton pattern
         if (instance == null) {
-            instance = new PropertiesHandler();
+            synchronized (PropertiesHandler.class) {
+                if (instance == null) {
+                    instance = new PropertiesHandler();
+                }
+            }
         }
         return instance;
     }
 
     /**
-     * Loads a properties file with the given filename.
+     * Loads a properties file with the given filename. It's also the last read
+     * file of the current thread for {@link #get(String)}.
      * 
      * @param filename
      *            of the properties file to read or the path to the file.
@@ -69,32 +92,63 @@ public class PropertiesHandler {
      */
     public boolean load (String filename) {
         log.info("Reading properties from the file: " + filename);
-        boolean read = false;
-        // If it wasn't read previously
-        if (!this.properties.containsKey(filename)) {
-            log.info("There is no cached properties, reading them now from " + filename);
-            this.lastReadFile = null;
-            InputStream inputStream = getInputStream(filename);
-            // if the file was loaded
-            if (inputStream != null) {
-                Properties propertiesFile = new Properties();
+        boolean read = this.getProperties(filename) != null;
+        if (read) {
+            this.lastReadFile.set(filename);
+        } else {
+            this.lastReadFile.remove();
+        }
+        return read;
+    }
+
+    /**
+     * Returns the cached properties of a file, reading it the first time.
+     * 
+     * @param filename
+     *            of the properties file to read or the path to the file.
+     * @return the properties or null if the file couldn't be read.
+     */
+    private Map<String, String> getProperties (String filename) {
+        Map<String, String> cached = this.properties.get(filename);
+        if (cached == null) {
+            cached = this.properties.computeIfAbsent(filename, reader);
+        }
+        return cached;
+    }
+
+    /**
+     * Reads a properties file.
+     * 
+     * @param filename
+     *            of the properties file to read or the path to the file.
+     * @return immutable map of the properties or null if the file couldn't be
+     *         read.
+     */
+    private Map<String, String> read (String filename) {
+        Map<String, String> read = null;
+        InputStream inputStream = getInputStream(filename);
+        // if the file was loaded
+        if (inputStream != null) {
+            Properties propertiesFile = new Properties();
+            try {
+                propertiesFile.load(inputStream);
+                Map<String, String> values = new HashMap<String, String>();
+                for (String name : propertiesFile.stringPropertyNames()) {
+                    values.put(name, propertiesFile.getProperty(name));
+                }
+                read = Collections.unmodifiableMap(values);
+                log.info(filename + " read and cached successfully!");
+            } catch (IOException ex) {
+                log.error("An error occured reading properties from " + filename + ": " + ex);
+            } finally {
                 try {
-                    propertiesFile.load(inputStream);
-                    // add the readed file into the cache
-                    this.properties.put(filename, propertiesFile);
-                    this.lastReadFile = filename;
-                    read = true;
-                    log.info(filename + " read and cached successfully!");
+                    inputStream.close();
                 } catch (IOException ex) {
-                    log.error("An error occured reading properties from " + filename + ": " + ex);
+                    log.error("An error occured closing " + filename + ": " + ex);
                 }
-            } else {
-                log.warn("Couldn't read properties from " + filename + ". It seems the file doesn't exist");
             }
         } else {
-            read = true;
-            this.lastReadFile = filename;
-            log.info("Properties were cached, so we don't have to read anything");
+            log.warn("Couldn't read properties from " + filename + ". It seems the file doesn't exist");
         }
         return read;
     }
@@ -138,20 +192,32 @@ public class PropertiesHandler {
     }
 
     /**
-     * Retrieves the value of a given property.
+     * Retrieves the value of a given property of a file, reading the file the
+     * first time.
+     * 
+     * @param filename
+     *            of the properties file or the path to the file.
+     * @param propertyName
+     *            to read.
+     * @return value of the property or null if it or the file don't exist.
+     */
+    public String get (String filename, String propertyName) {
+        Map<String, String> values = this.getProperties(filename);
+        return values != null ? values.get(propertyName) : null;
+    }
+
+    /**
+     * Retrieves the value of a given property of the last file loaded by the
+     * current thread with {@link #load(String)}.
      * 
      * @param propertyName
      *            to read.
      * @return value of the property or null if it doesn't exist.
      */
     public String get (String propertyName) {
-        String value = null;
-        // return the key just if the file was loaded previously and if the
-        // Properties object exists
-        if (this.lastReadFile != null && this.properties.containsKey(this.lastReadFile)) {
-            value = this.properties.get(this.lastReadFile).getProperty(propertyName);
-        }
-        return value;
+        String filename = this.lastReadFile.get();
+        // return the key just if the file was loaded previously by this thread
+        return filename != null ? this.get(filename, propertyName) : null;
     }
 
     /**
@@ -161,23 +227,13 @@ public class PropertiesHandler {
     public void refreshLoadedFiles () {
         log.info("Refreshing " + this.properties.size() + " cached properties files");
         for (String filename : this.properties.keySet()) {
-            Properties oldProperties = this.properties.get(filename);
-            // removing the old Properties object to force reload it.
-            this.properties.remove(filename);
-            // if an error occurred, we put again the old properties
-            if (!this.load(filename)) {
-                log.error("An error occurred refreshing the " + filename
-                        + " file. The old properties will be used again!");
-                this.properties.put(filename, oldProperties);
-            } else {
-                log.info(filename + " refreshed successfully!");
-            }
-
+            this.refreshPropertyFile(filename);
         }
     }
 
     /**
-     * Refreshes a given property file.
+     * Refreshes a given property file. The old properties are used until the
+     * new ones are read.
      * 
      * @param fileName
      *            to read. If a file doesn't exist now, it will not be
@@ -185,14 +241,12 @@ public class PropertiesHandler {
      */
     public void refreshPropertyFile (String fileName) {
         log.info("Refreshing " + fileName + " cached property file");
-        Properties oldProperties = this.properties.get(fileName);
-        // removing the old Properties object to force reload it.
-        this.properties.remove(fileName);
-        // if an error occurred, we put again the old properties
-        if (!this.load(fileName)) {
+        Map<String, String> values = this.read(fileName);
+        // if an error occurred, the old properties are used again
+        if (values == null) {
             log.error("An error occurred refreshing the " + fileName + " file. The old properties will be used again!");
-            this.properties.put(fileName, oldProperties);
         } else {
+            this.properties.put(fileName, values);
             log.info(fileName + " refreshed successfully!");
         }
     }
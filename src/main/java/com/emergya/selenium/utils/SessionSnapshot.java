@@ -0,0 +1,183 @@
+package com.emergya.selenium.utils;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriverException;
+
+import com.emergya.selenium.drivers.EmergyaWebDriver;
+
+/**
+ * State of an authenticated browser session: cookies, localStorage and
+ * sessionStorage of the application origin. It can be captured once and
+ * restored in other drivers to skip the login.
+ */
+public class SessionSnapshot {
+
+    /**
+     * Logger class initialization.
+     */
+    private static final Logger log = Logger.getLogger(SessionSnapshot.class);
+
+    /**
+     * Script to read the web storage of the current origin.
+     */
+    private static final String CAPTURE_STORAGE_SCRIPT = "var result = {local: {}, session: {}};"
+            + " function read(storage, target) { for (var i = 0; i < storage.length; i++) {"
+            + " var key = storage.key(i); target[key] = storage.getItem(key); } }"
+            + " try { read(window.localStorage, result.local); } catch (e) {}"
+            + " try { read(window.sessionStorage, result.session); } catch (e) {}" + " return result;";
+
+    /**
+     * Script to replace the web storage of the current origin.
+     */
+    private static final String RESTORE_STORAGE_SCRIPT = "function write(storage, values) { storage.clear();"
+            + " for (var key in values) { storage.setItem(key, values[key]); } }"
+            + " write(window.localStorage, arguments[0]); write(window.sessionStorage, arguments[1]);";
+
+    /**
+     * URL of the page where the snapshot was captured.
+     */
+    private final String url;
+
+    /**
+     * Cookies of the session.
+     */
+    private final Set<Cookie> cookies;
+
+    /**
+     * localStorage entries.
+     */
+    private final Map<String, String> localStorage;
+
+    /**
+     * sessionStorage entries.
+     */
+    private final Map<String, String> sessionStorage;
+
+    /**
+     * Capture time, in milliseconds.
+     */
+    private final long capturedAt = System.currentTimeMillis();
+
+    /**
+     * Constructor
+     *
+     * @param url
+     *            of the page where the snapshot was captured
+     * @param cookies
+     *            of the session
+     * @param localStorage
+     *            entries
+     * @param sessionStorage
+     *            entries
+     */
+    public SessionSnapshot(String url, Set<Cookie> cookies, Map<String, String> localStorage,
+            Map<String, String> sessionStorage) {
+        this.url = url;
+        this.cookies = Collections.unmodifiableSet(new LinkedHashSet<Cookie>(cookies));
+        this.localStorage = Collections.unmodifiableMap(new LinkedHashMap<String, String>(localStorage));
+        this.sessionStorage = Collections.unmodifiableMap(new LinkedHashMap<String, String>(sessionStorage));
+    }
+
+    /**
+     * Captures the session state of the current page of a driver.
+     *
+     * @param driver
+     *            with an authenticated session
+     * @return the snapshot
+     */
+    @SuppressWarnings("unchecked")
+    public static SessionSnapshot capture(EmergyaWebDriver driver) {
+        Map<String, Object> storage = (Map<String, Object>) ((JavascriptExecutor) driver)
+                .executeScript(CAPTURE_STORAGE_SCRIPT);
+
+        return new SessionSnapshot(driver.getCurrentUrl(), driver.manage().getCookies(),
+                toStringMap((Map<String, Object>) storage.get("local")),
+                toStringMap((Map<String, Object>) storage.get("session")));
+    }
+
+    /**
+     * Restores the session state in a driver. The driver must be on a page of
+     * the same origin (the login URL after the startup) because the cookies
+     * and the storage can only be set for the current origin. Then it goes to
+     * the target URL.
+     *
+     * @param driver
+     *            where the session is restored
+     * @param targetUrl
+     *            page to open after restoring, or null to open the page where
+     *            the snapshot was captured
+     */
+    public void restore(EmergyaWebDriver driver, String targetUrl) {
+        driver.manage().deleteAllCookies();
+
+        Date now = new Date();
+        for (Cookie cookie : cookies) {
+            if (cookie.getExpiry() != null && cookie.getExpiry().before(now)) {
+                continue;
+            }
+            try {
+                driver.manage().addCookie(cookie);
+            } catch (WebDriverException e) {
+                // cookies of other domains can't be set from this page
+                log.warn("The cookie " + cookie.getName() + " couldn't be restored: " + e.getMessage());
+            }
+        }
+
+        if (!localStorage.isEmpty() || !sessionStorage.isEmpty()) {
+            ((JavascriptExecutor) driver).executeScript(RESTORE_STORAGE_SCRIPT, localStorage, sessionStorage);
+        }
+
+        driver.get(targetUrl != null ? targetUrl : url);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Set<Cookie> getCookies() {
+        return cookies;
+    }
+
+    public Map<String, String> getLocalStorage() {
+        return localStorage;
+    }
+
+    public Map<String, String> getSessionStorage() {
+        return sessionStorage;
+    }
+
+    /**
+     * Returns the age of the snapshot.
+     *
+     * @return milliseconds since the capture
+     */
+    public long getAge() {
+        return System.currentTimeMillis() - capturedAt;
+    }
+
+    /**
+     * Converts the storage values returned by a script to strings.
+     *
+     * @param values
+     *            returned by the script, it could be null
+     * @return map of strings
+     */
+    private static Map<String, String> toStringMap(Map<String, Object> values) {
+        Map<String, String> result = new LinkedHashMap<String, String>();
+        if (values != null) {
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                result.put(entry.getKey(), entry.getValue() == null ? null : String.valueOf(entry.getValue()));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,270 @@
+package com.emergya.selenium.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriverException;
+
+import com.emergya.selenium.drivers.EmergyaWebDriver;
+
+/**
+ * Authenticated sessions captured once and shared by the tests. The first test
+ * logs in through the page objects and its session is captured, the next tests
+ * get it injected in their drivers. When the server rejects a restored session
+ * (the logged in check fails), the snapshot is invalidated and the login is
+ * done again.
+ */
+public class SessionStore {
+
+    /**
+     * Logger class initialization.
+     */
+    private static final Logger log = Logger.getLogger(SessionStore.class);
+
+    /**
+     * Script to clear the web storage of the current origin.
+     */
+    private static final String CLEAR_STORAGE_SCRIPT = "try { window.localStorage.clear(); } catch (e) {}"
+            + " try { window.sessionStorage.clear(); } catch (e) {}";
+
+    private static volatile SessionStore instance = null;
+
+    /**
+     * Captured sessions by name.
+     */
+    private final ConcurrentMap<String, SessionSnapshot> snapshots = new ConcurrentHashMap<String, SessionSnapshot>();
+
+    /**
+     * Locks by session name, so just one thread logs in while the others wait
+     * for its snapshot.
+     */
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * Login steps of the application.
+     */
+    public interface LoginAction {
+
+        /**
+         * Logs in the application with the given driver.
+         *
+         * @param driver
+         *            where the login is done
+         */
+        void login(EmergyaWebDriver driver);
+    }
+
+    /**
+     * Private constructor, use {@link #getInstance()}.
+     */
+    private SessionStore() {
+    }
+
+    /**
+     * Singleton pattern
+     *
+     * @return the session store
+     */
+    public static SessionStore getInstance() {
+        if (instance == null) {
+            synchronized (SessionStore.class) {
+                if (instance == null) {
+                    instance = new SessionStore();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Restores the named session in the driver or, if there is no valid
+     * snapshot, logs in and captures it for the next tests.
+     *
+     * @param driver
+     *            of the test
+     * @param name
+     *            of the session (e.g. the user)
+     * @param login
+     *            steps to log in when there is no snapshot
+     * @param loggedInCheck
+     *            element shown only with an authenticated session, used to
+     *            detect rejected sessions. It could be null
+     * @param targetUrl
+     *            page to open after restoring, or null for the page where the
+     *            session was captured
+     * @return true if the session was restored, false if the login was done
+     */
+    public boolean restoreOrLogin(EmergyaWebDriver driver, String name, LoginAction login, By loggedInCheck,
+            String targetUrl) {
+        SessionSnapshot snapshot = get(name);
+        if (snapshot != null && restore(driver, name, snapshot, loggedInCheck, targetUrl)) {
+            return true;
+        }
+
+        synchronized (getLock(name)) {
+            // other thread could have captured a new session meanwhile
+            SessionSnapshot current = get(name);
+            if (current != null && current != snapshot
+                    && restore(driver, name, current, loggedInCheck, targetUrl)) {
+                return true;
+            }
+
+            log.info("Logging in to capture the session " + name);
+            login.login(driver);
+            capture(name, driver);
+            return false;
+        }
+    }
+
+    /**
+     * Restores the named session in the driver.
+     *
+     * @param driver
+     *            of the test
+     * @param name
+     *            of the session
+     * @param loggedInCheck
+     *            element shown only with an authenticated session. It could be
+     *            null
+     * @param targetUrl
+     *            page to open after restoring, or null for the page where the
+     *            session was captured
+     * @return true if the session was restored, false if there is no valid
+     *         snapshot or the server rejected it
+     */
+    public boolean restore(EmergyaWebDriver driver, String name, By loggedInCheck, String targetUrl) {
+        SessionSnapshot snapshot = get(name);
+        return snapshot != null && restore(driver, name, snapshot, loggedInCheck, targetUrl);
+    }
+
+    /**
+     * Captures the session of the driver and stores it with the given name,
+     * replacing the previous one.
+     *
+     * @param name
+     *            of the session
+     * @param driver
+     *            with an authenticated session
+     * @return the snapshot
+     */
+    public SessionSnapshot capture(String name, EmergyaWebDriver driver) {
+        SessionSnapshot snapshot = SessionSnapshot.capture(driver);
+        snapshots.put(name, snapshot);
+        log.info("Session " + name + " captured: " + snapshot.getCookies().size() + " cookies, "
+                + snapshot.getLocalStorage().size() + " localStorage and " + snapshot.getSessionStorage().size()
+                + " sessionStorage entries");
+        return snapshot;
+    }
+
+    /**
+     * Returns a stored session, discarding it if it's older than the
+     * sessionSnapshotMaxAge property.
+     *
+     * @param name
+     *            of the session
+     * @return the snapshot or null if there is no valid one
+     */
+    public SessionSnapshot get(String name) {
+        SessionSnapshot snapshot = snapshots.get(name);
+        long maxAge = Initialization.getInstance().getSessionSnapshotMaxAge();
+        if (snapshot != null && maxAge > 0 && snapshot.getAge() > maxAge * 1000) {
+            log.info("Session " + name + " expired");
+            snapshots.remove(name, snapshot);
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Removes a stored session, so the next test logs in again.
+     *
+     * @param name
+     *            of the session
+     */
+    public void invalidate(String name) {
+        if (snapshots.remove(name) != null) {
+            log.info("Session " + name + " invalidated");
+        }
+    }
+
+    /**
+     * Removes all the stored sessions.
+     */
+    public void clear() {
+        snapshots.clear();
+    }
+
+    // **** Private methods section ****//
+    /**
+     * Restores a snapshot and checks that the server accepts it. A rejected
+     * snapshot is invalidated.
+     *
+     * @param driver
+     *            of the test
+     * @param name
+     *            of the session
+     * @param snapshot
+     *            to be restored
+     * @param loggedInCheck
+     *            element shown only with an authenticated session. It could be
+     *            null
+     * @param targetUrl
+     *            page to open after restoring
+     * @return true if the session was restored
+     */
+    private boolean restore(EmergyaWebDriver driver, String name, SessionSnapshot snapshot, By loggedInCheck,
+            String targetUrl) {
+        Initialization config = Initialization.getInstance();
+        try {
+            // the cookies and the storage are set for the current origin
+            String currentUrl = driver.getCurrentUrl();
+            if (currentUrl == null || config.getEnvironment() == null
+                    || !currentUrl.startsWith(config.getEnvironment())) {
+                driver.get(config.getLoginURL());
+            }
+
+            snapshot.restore(driver, targetUrl);
+
+            if (loggedInCheck == null
+                    || driver.waitUntilVisible(loggedInCheck, config.getSessionRestoreCheckTimeout())) {
+                log.info("Session " + name + " restored");
+                return true;
+            }
+            log.warn("Session " + name + " rejected by the server");
+        } catch (WebDriverException e) {
+            log.warn("Session " + name + " couldn't be restored: " + e.getMessage());
+        }
+
+        snapshots.remove(name, snapshot);
+        try {
+            driver.manage().deleteAllCookies();
+            ((JavascriptExecutor) driver).executeScript(CLEAR_STORAGE_SCRIPT);
+            driver.get(config.getLoginURL());
+        } catch (WebDriverException e) {
+            log.warn("The rejected session couldn't be cleaned: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Returns the lock of a session name.
+     *
+     * @param name
+     *            of the session
+     * @return the lock
+     */
+    private Object getLock(String name) {
+        Object lock = locks.get(name);
+        if (lock == null) {
+            Object newLock = new Object();
+            lock = locks.putIfAbsent(name, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+}
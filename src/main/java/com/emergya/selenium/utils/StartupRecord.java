@@ -0,0 +1,120 @@
+package com.emergya.selenium.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of the phases of a driver startup (driver service, profile,
+ * session creation, window size, navigation to the login URL, download
+ * directory cleaning...). It's filled by a single thread.
+ */
+public class StartupRecord {
+
+    /**
+     * Name of the test or the background task of the startup.
+     */
+    private final String name;
+
+    /**
+     * Duration of each phase, in nanoseconds, in order of execution.
+     */
+    private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+
+    /**
+     * Start of the record.
+     */
+    private final long start = System.nanoTime();
+
+    /**
+     * Whole duration of the startup, in nanoseconds. -1 until it finishes.
+     */
+    private long elapsed = -1;
+
+    /**
+     * Constructor
+     *
+     * @param name
+     *            of the test or the background task
+     */
+    public StartupRecord(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Adds the duration of a phase. If the phase was already recorded, the
+     * durations are added up.
+     *
+     * @param phase
+     *            name of the phase
+     * @param nanos
+     *            duration in nanoseconds
+     */
+    public void add(String phase, long nanos) {
+        Long previous = phases.get(phase);
+        phases.put(phase, previous == null ? nanos : previous + nanos);
+    }
+
+    /**
+     * Returns the sum of the recorded phases.
+     *
+     * @return nanoseconds recorded in phases
+     */
+    public long getPhasesTotal() {
+        long total = 0;
+        for (Long nanos : phases.values()) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    /**
+     * Finishes the record.
+     */
+    void finish() {
+        elapsed = System.nanoTime() - start;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the duration of each phase.
+     *
+     * @return unmodifiable map of phase name and nanoseconds
+     */
+    public Map<String, Long> getPhases() {
+        return Collections.unmodifiableMap(phases);
+    }
+
+    /**
+     * Returns the whole duration of the startup.
+     *
+     * @return nanoseconds, or -1 if the startup hasn't finished
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(name).append(": total=").append(toMillis(elapsed)).append("ms");
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            builder.append(' ').append(phase.getKey()).append('=').append(toMillis(phase.getValue())).append("ms");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds.
+     *
+     * @param nanos
+     *            to be converted
+     * @return milliseconds
+     */
+    static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,185 @@
+package com.emergya.selenium.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Timing of the driver startups. Each startup has a {@link StartupRecord}
+ * bound to the thread doing it, the phases are added to it with
+ * {@link #phase(String, long)} and, when it finishes, it's kept to calculate
+ * the percentiles of each phase at the end of the suite.
+ */
+public class StartupTimings {
+
+    /**
+     * Name of the records of the drivers acquired by a test.
+     */
+    public static final String TEST = "test";
+
+    /**
+     * Name of the records of the drivers created in background.
+     */
+    public static final String BACKGROUND = "background";
+
+    /**
+     * Logger class initialization.
+     */
+    private static final Logger log = Logger.getLogger(StartupTimings.class);
+
+    /**
+     * Percentiles shown in the summary.
+     */
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    /**
+     * Record of the startup in progress in each thread.
+     */
+    private static final ThreadLocal<StartupRecord> current = new ThreadLocal<StartupRecord>();
+
+    /**
+     * Last finished record of each thread.
+     */
+    private static final ThreadLocal<StartupRecord> last = new ThreadLocal<StartupRecord>();
+
+    /**
+     * All the finished records.
+     */
+    private static final Queue<StartupRecord> records = new ConcurrentLinkedQueue<StartupRecord>();
+
+    /**
+     * Private constructor, just static methods.
+     */
+    private StartupTimings() {
+    }
+
+    /**
+     * Starts the record of a startup in the current thread, unless there is
+     * already one in progress (the phases are added to it).
+     *
+     * @param name
+     *            {@link #TEST} or {@link #BACKGROUND}
+     * @return true if a new record was started, so the caller must call
+     *         {@link #end()}
+     */
+    public static boolean begin(String name) {
+        if (current.get() != null) {
+            return false;
+        }
+        current.set(new StartupRecord(name));
+        return true;
+    }
+
+    /**
+     * Adds a phase to the record of the current thread, if there is one.
+     *
+     * @param phase
+     *            name of the phase
+     * @param startNanos
+     *            {@link System#nanoTime()} at the start of the phase
+     */
+    public static void phase(String phase, long startNanos) {
+        StartupRecord record = current.get();
+        if (record != null) {
+            record.add(phase, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Returns the record in progress of the current thread.
+     *
+     * @return the record or null if there is no startup in progress
+     */
+    public static StartupRecord current() {
+        return current.get();
+    }
+
+    /**
+     * Finishes the record of the current thread.
+     *
+     * @return the finished record or null if there was no one
+     */
+    public static StartupRecord end() {
+        StartupRecord record = current.get();
+        current.remove();
+        if (record != null) {
+            record.finish();
+            records.add(record);
+            last.set(record);
+            log.info("[log-Startup] " + record);
+        }
+        return record;
+    }
+
+    /**
+     * Returns the last finished record of the current thread.
+     *
+     * @return the record or null if no startup has finished in this thread
+     */
+    public static StartupRecord getLastRecord() {
+        return last.get();
+    }
+
+    /**
+     * Returns all the finished records.
+     *
+     * @return copy of the records
+     */
+    public static List<StartupRecord> getRecords() {
+        return new ArrayList<StartupRecord>(records);
+    }
+
+    /**
+     * Logs the percentiles of each phase and of the whole startups.
+     */
+    public static void logSummary() {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Long>> samples = new LinkedHashMap<String, List<Long>>();
+        for (StartupRecord record : records) {
+            addSample(samples, "total (" + record.getName() + ")", record.getElapsed());
+            for (Map.Entry<String, Long> phase : record.getPhases().entrySet()) {
+                addSample(samples, phase.getKey(), phase.getValue());
+            }
+        }
+
+        log.info("[log-Startup] Driver startup summary (ms):");
+        for (Map.Entry<String, List<Long>> phase : samples.entrySet()) {
+            long[] sorted = Percentiles.sorted(phase.getValue());
+            StringBuilder line = new StringBuilder("[log-Startup]   ").append(phase.getKey()).append(": n=")
+                    .append(sorted.length);
+            for (double percentile : PERCENTILES) {
+                line.append(" p").append((int) percentile).append('=')
+                        .append(StartupRecord.toMillis(Percentiles.percentile(sorted, percentile)));
+            }
+            line.append(" max=").append(StartupRecord.toMillis(sorted[sorted.length - 1]));
+            log.info(line.toString());
+        }
+    }
+
+    /**
+     * Adds a sample to its phase.
+     *
+     * @param samples
+     *            samples of each phase
+     * @param phase
+     *            name of the phase
+     * @param nanos
+     *            duration
+     */
+    private static void addSample(Map<String, List<Long>> samples, String phase, long nanos) {
+        List<Long> values = samples.get(phase);
+        if (values == null) {
+            values = new ArrayList<Long>();
+            samples.put(phase, values);
+        }
+        values.add(nanos);
+    }
+}
@@ -0,0 +1,60 @@
+package com.emergya.selenium.utils;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scheduler shared by the asynchronous waits. A wait doesn't hold a thread
+ * while it sleeps between checks: each check is scheduled after the previous
+ * one, so a few daemon threads drive all the waits in flight.
+ */
+public class WaitScheduler {
+
+    private static volatile WaitScheduler instance = null;
+
+    /**
+     * Executor of the checks.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Private constructor, use {@link #getInstance()}.
+     *
+     * @param threads
+     *            of the scheduler
+     */
+    private WaitScheduler(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "emergya-wait-" + count.incrementAndGet());
+                // the pending waits never keep the JVM alive
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Singleton pattern
+     *
+     * @return the scheduler, with the asyncWaitThreads threads
+     */
+    public static WaitScheduler getInstance() {
+        if (instance == null) {
+            synchronized (WaitScheduler.class) {
+                if (instance == null) {
+                    instance = new WaitScheduler(Initialization.getInstance().getAsyncWaitThreads());
+                }
+            }
+        }
+        return instance;
+    }
+
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+}
@@ -0,0 +1,231 @@
+package com.emergya.selenium.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Timeouts derived from the recorded durations of the waits. The duration of
+ * each successful wait is recorded by key (page object and selector key, or
+ * selector) and persisted across runs. With autoTimeouts enabled, the timeout
+ * of a key with enough samples is its p99 multiplied by a factor, between a
+ * floor and a ceiling, so a broken selector fails in a couple of seconds while
+ * a slow one still has time. The failed waits are not recorded, they would
+ * push every timeout to the ceiling.
+ */
+public class WaitTimeouts {
+
+    private static final Logger log = Logger.getLogger(WaitTimeouts.class);
+
+    /**
+     * Samples kept by key, the oldest ones are discarded.
+     */
+    private static final int MAX_SAMPLES = 200;
+
+    /**
+     * True to derive the timeouts, false to just record the durations.
+     */
+    private final boolean enabled;
+
+    /**
+     * File of the recorded durations, null to keep them just in memory.
+     */
+    private final File file;
+
+    /**
+     * Factor applied to the p99.
+     */
+    private final double factor;
+
+    /**
+     * Floor of the derived timeouts, in seconds.
+     */
+    private final long minTimeout;
+
+    /**
+     * Ceiling of the derived timeouts, in seconds.
+     */
+    private final long maxTimeout;
+
+    /**
+     * Samples needed to derive the timeout of a key.
+     */
+    private final int minSamples;
+
+    /**
+     * Recorded durations by key, in milliseconds.
+     */
+    private final ConcurrentMap<String, LinkedList<Long>> samples = new ConcurrentHashMap<String, LinkedList<Long>>();
+
+    /**
+     * Constructor, it loads the durations recorded by the previous runs.
+     *
+     * @param enabled
+     *            true to derive the timeouts
+     * @param file
+     *            path of the recorded durations, blank to keep them just in
+     *            memory
+     * @param factor
+     *            applied to the p99
+     * @param minTimeout
+     *            floor of the derived timeouts, in seconds
+     * @param maxTimeout
+     *            ceiling of the derived timeouts, in seconds
+     * @param minSamples
+     *            needed to derive the timeout of a key
+     */
+    public WaitTimeouts(boolean enabled, String file, double factor, long minTimeout, long maxTimeout,
+            int minSamples) {
+        this.enabled = enabled;
+        this.file = StringUtils.isNotBlank(file) ? new File(file.trim()) : null;
+        this.factor = factor;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = Math.max(minTimeout, maxTimeout);
+        this.minSamples = Math.max(1, minSamples);
+        this.load();
+    }
+
+    /**
+     * Returns the timeout of a key.
+     *
+     * @param key
+     *            of the wait
+     * @param defaultTimeout
+     *            in seconds, used when the timeouts are not derived or there
+     *            aren't enough samples
+     * @return the timeout in seconds
+     */
+    public long getTimeout(String key, long defaultTimeout) {
+        if (!enabled) {
+            return defaultTimeout;
+        }
+
+        LinkedList<Long> durations = samples.get(key);
+        long[] sorted;
+        if (durations == null) {
+            return defaultTimeout;
+        }
+        synchronized (durations) {
+            if (durations.size() < minSamples) {
+                return defaultTimeout;
+            }
+            sorted = Percentiles.sorted(durations);
+        }
+
+        long timeout = (long) Math.ceil(Percentiles.percentile(sorted, 99) * factor / 1000.0);
+        return Math.min(maxTimeout, Math.max(minTimeout, timeout));
+    }
+
+    /**
+     * Records the duration of a successful wait.
+     *
+     * @param key
+     *            of the wait
+     * @param millis
+     *            duration of the wait
+     */
+    public void record(String key, long millis) {
+        LinkedList<Long> durations = samples.get(key);
+        if (durations == null) {
+            samples.putIfAbsent(key, new LinkedList<Long>());
+            durations = samples.get(key);
+        }
+        synchronized (durations) {
+            durations.add(millis);
+            if (durations.size() > MAX_SAMPLES) {
+                durations.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Loads the durations recorded by the previous runs.
+     */
+    public synchronized void load() {
+        if (file == null || !file.exists()) {
+            return;
+        }
+
+        Properties prop = new Properties();
+        InputStream input = null;
+        try {
+            input = new FileInputStream(file);
+            prop.load(input);
+        } catch (IOException e) {
+            log.warn("The wait durations couldn't be read from " + file + ": " + e.getMessage());
+            return;
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    log.error(e.getStackTrace());
+                }
+            }
+        }
+
+        for (String key : prop.stringPropertyNames()) {
+            for (String value : prop.getProperty(key).split(",")) {
+                try {
+                    this.record(key, Long.parseLong(value.trim()));
+                } catch (NumberFormatException e) {
+                    log.warn("Wrong wait duration of " + key + " in " + file + ": " + value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the recorded durations for the next runs.
+     */
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+
+        Properties prop = new Properties();
+        for (Map.Entry<String, LinkedList<Long>> entry : samples.entrySet()) {
+            List<Long> durations;
+            synchronized (entry.getValue()) {
+                durations = new ArrayList<Long>(entry.getValue());
+            }
+            prop.setProperty(entry.getKey(), StringUtils.join(durations, ","));
+        }
+
+        OutputStream output = null;
+        try {
+            if (file.getParentFile() != null) {
+                file.getParentFile().mkdirs();
+            }
+            output = new FileOutputStream(file);
+            prop.store(output, "Durations of the successful waits, in milliseconds");
+        } catch (IOException e) {
+            log.error("The wait durations couldn't be saved in " + file + ": " + e.getMessage());
+        } finally {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    log.error(e.getStackTrace());
+                }
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}